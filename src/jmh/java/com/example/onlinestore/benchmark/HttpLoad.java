@@ -0,0 +1,165 @@
+package com.example.onlinestore.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load against a running instance, for comparing Tomcat's platform worker pool with virtual threads
+ * ({@code spring.threads.virtual.enabled}). Requests are scheduled at a fixed rate whatever the server does, and each
+ * latency is measured from the time its request was due to be sent, not from when it went out. A server that stalls
+ * therefore shows up in the percentiles as every request that should have been sent meanwhile, rather than as the one
+ * slow response a closed loop would record (coordinated omission). After a warmup it prints throughput and latency
+ * percentiles for the requests scheduled in the measured interval. Arguments are {@code key=value}:
+ *
+ * <ul>
+ *     <li>{@code url} - base URL, default {@code http://localhost:8080}</li>
+ *     <li>{@code rate} - requests per second, default 10000</li>
+ *     <li>{@code connections} - most requests in flight at once, default 2000; a request due while all are busy waits,
+ *     and the wait counts towards its latency</li>
+ *     <li>{@code warmup}, {@code duration} - seconds, default 10 and 30</li>
+ *     <li>{@code paths} - comma-separated GET paths, picked at random per request, default {@code /api/products/1}</li>
+ *     <li>{@code writes} - share of requests that instead create a product, default 0</li>
+ * </ul>
+ *
+ * This is not a JMH benchmark; it lives with them for the classpath and the {@code exec:exec} wiring.
+ */
+public final class HttpLoad {
+    private final HttpClient http;
+    private final URI base;
+    private final List<String> paths;
+    private final double writes;
+    private final AtomicLong errors = new AtomicLong();
+
+    private HttpLoad(HttpClient http, URI base, List<String> paths, double writes) {
+        this.http = http;
+        this.base = base;
+        this.paths = paths;
+        this.writes = writes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                System.err.println("usage: HttpLoad [url=...] [rate=N] [connections=N] [warmup=s] [duration=s]"
+                        + " [paths=/a,/b] [writes=0.1]");
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "10000"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "2000"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(callbacks)
+                .build();
+        HttpLoad load = new HttpLoad(http, URI.create(options.getOrDefault("url", "http://localhost:8080")),
+                Arrays.asList(options.getOrDefault("paths", "/api/products/1").split(",")),
+                Double.parseDouble(options.getOrDefault("writes", "0")));
+
+        long warmupRequests = (long) rate * warmup;
+        int measured = Math.toIntExact((long) rate * duration);
+        // -1 until answered, so a failed or unanswered request is never read as a fast one
+        long[] latencies = new long[measured];
+        Arrays.fill(latencies, -1);
+        CountDownLatch outstanding = new CountDownLatch(measured);
+        Semaphore inFlight = new Semaphore(connections);
+        double interval = 1e9 / rate;
+        long start = System.nanoTime();
+        long maxLag = 0;
+        for (long i = 0; i < warmupRequests + measured; i++) {
+            long due = start + (long) (i * interval);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            long lag = System.nanoTime() - due;
+            int slot = (int) (i - warmupRequests);
+            if (slot >= 0 && lag > maxLag) {
+                maxLag = lag;
+            }
+            load.send(due, slot < 0 ? -1 : slot, latencies, outstanding, inFlight);
+        }
+        if (!outstanding.await(60, TimeUnit.SECONDS)) {
+            System.err.println(outstanding.getCount() + " measured requests still unanswered after 60 s");
+        }
+        // from the first measured request's due time to the last answer
+        double seconds = (System.nanoTime() - start - warmupRequests * interval) / 1e9;
+        callbacks.shutdown();
+
+        // failed and unanswered requests sort to the front, where they are skipped
+        Arrays.sort(latencies);
+        int failed = 0;
+        while (failed < latencies.length && latencies[failed] < 0) {
+            failed++;
+        }
+        long[] answered = Arrays.copyOfRange(latencies, failed, latencies.length);
+        System.out.printf("rate=%d connections=%d requests=%d errors=%d throughput=%.1f req/s max send lag=%.2f ms%n",
+                rate, connections, measured, load.errors.get(), answered.length / seconds, maxLag / 1e6);
+        System.out.printf("latency ms from intended send: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                percentile(answered, 0.50), percentile(answered, 0.90), percentile(answered, 0.99),
+                percentile(answered, 0.999), percentile(answered, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Sends one request that was due at {@code due}. A measured request ({@code slot >= 0}) that succeeds writes its
+     * latency into its own slot; either way it then counts down {@code outstanding}, which publishes the slot.
+     */
+    private void send(long due, int slot, long[] latencies, CountDownLatch outstanding, Semaphore inFlight) {
+        http.sendAsync(request(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - due;
+                    inFlight.release();
+                    if (slot >= 0) {
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies[slot] = latency;
+                        }
+                        outstanding.countDown();
+                    }
+                });
+    }
+
+    private HttpRequest request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (writes > 0 && random.nextDouble() < writes) {
+            String body = "{\"name\":\"Load " + random.nextInt(1_000_000) + "\",\"price\":" + random.nextInt(100) + "}";
+            return HttpRequest.newBuilder(base.resolve("/api/products"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        return HttpRequest.newBuilder(base.resolve(paths.get(random.nextInt(paths.size())))).GET().build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.repository.InventoryMode;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StoreProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash-sale contention: every thread reserves units of the same product. Compare {@code ATOMIC} and {@code SHARDED}
+ * inventory across thread counts with {@link ThreadScaling}, e.g.
+ * {@code 1,2,4,8,16,32,64 InventoryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryBenchmark {
+    private static final long HOT = 1L;
+    private static final long SOLD_OUT = 2L;
+
+    @Param({"ATOMIC", "SHARDED"})
+    public InventoryMode mode;
+
+    private ProductRepository repo;
+
+    @Setup(Level.Trial)
+    public void stock() {
+        StoreProperties properties = new StoreProperties();
+        properties.getInventory().setMode(mode);
+        repo = new ProductRepository(properties);
+        // far more than a run can hold at once, so a reservation only fails if the counter is wrong
+        repo.setStock(HOT, 1_000_000_000L);
+        repo.setStock(SOLD_OUT, 0);
+    }
+
+    /** Reserves one unit of the hot product and releases it again, so its stock stays level across the run. */
+    @Benchmark
+    public Optional<Reservation> reserveRelease() {
+        Reservation held = repo.reserve(HOT, 1).orElseThrow();
+        return repo.releaseReservation(held.getId());
+    }
+
+    /** Attempts on a product that has sold out, the bulk of the traffic once a sale is over. */
+    @Benchmark
+    public Optional<Reservation> reserveSoldOut() {
+        return repo.reserve(SOLD_OUT, 1);
+    }
+}
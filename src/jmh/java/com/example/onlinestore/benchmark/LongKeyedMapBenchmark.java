@@ -0,0 +1,63 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ConcurrentLongHashMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConcurrentLongHashMap} against the {@code ConcurrentHashMap<Long, Product>} it replaced, for get/put mixes
+ * over a pre-filled map. The 50M case needs a heap of roughly 8 GB for the boxed map, e.g.
+ * {@code -jvmArgsAppend -Xmx12g}; run with {@code -t} to vary the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LongKeyedMapBenchmark {
+
+    @Param({"1000000", "10000000", "50000000"})
+    public int size;
+
+    @Param({"0", "10", "50"})
+    public int putPercent;
+
+    @Param({"boxed", "primitive"})
+    public String map;
+
+    private ConcurrentHashMap<Long, Product> boxed;
+    private ConcurrentLongHashMap<Product> primitive;
+    private Product value;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        value = new Product(1L, "Benchmark product", 9.99);
+        if (map.equals("boxed")) {
+            boxed = new ConcurrentHashMap<>(size);
+            for (long id = 1; id <= size; id++) {
+                boxed.put(id, value);
+            }
+        } else {
+            primitive = new ConcurrentLongHashMap<>(size);
+            for (long id = 1; id <= size; id++) {
+                primitive.put(id, value);
+            }
+        }
+    }
+
+    @Benchmark
+    public Product mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextInt(size);
+        boolean put = random.nextInt(100) < putPercent;
+        if (boxed != null) {
+            return put ? boxed.put(id, value) : boxed.get(id);
+        }
+        return put ? primitive.put(id, value) : primitive.get(id);
+    }
+}
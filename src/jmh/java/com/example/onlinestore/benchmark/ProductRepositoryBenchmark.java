@@ -0,0 +1,107 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StorageEngine;
+import com.example.onlinestore.repository.StoreProperties;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProductRepository} operations against a pre-filled in-memory catalog. Use {@link ThreadScaling} (or JMH's
+ * {@code -t}) to vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int catalogSize;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public StorageEngine engine;
+
+    private static final int VOCABULARY = 5000;
+
+    private ProductRepository repo;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        StoreProperties properties = new StoreProperties();
+        properties.setEngine(engine);
+        repo = new ProductRepository(properties);
+        // the repository seeds two samples; top up to the requested size
+        Random random = new Random(42);
+        for (int i = 2; i < catalogSize; i++) {
+            repo.save(new Product(null, randomName(random), i % 500 + 0.99));
+        }
+    }
+
+    @Benchmark
+    public Object findById() {
+        return repo.findById(randomId());
+    }
+
+    @Benchmark
+    public Product save() {
+        long id = randomId();
+        return repo.save(new Product(id, randomName(ThreadLocalRandom.current()), 4.99));
+    }
+
+    /** Deletes a random product and puts it back, so the catalog keeps its size across iterations. */
+    @Benchmark
+    public Product deleteById() {
+        long id = randomId();
+        repo.deleteById(id);
+        return repo.save(new Product(id, randomName(ThreadLocalRandom.current()), 4.99));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<Product> findAll() {
+        return repo.findAll();
+    }
+
+    @Benchmark
+    public List<Product> findPage() {
+        return repo.findPage(randomId(), 50);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void scan(Blackhole bh) {
+        try (ProductRepository.Scan scan = repo.scan()) {
+            while (scan.hasNext()) {
+                bh.consume(scan.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Product> search() {
+        return repo.search(randomName(ThreadLocalRandom.current()), 10);
+    }
+
+    @Benchmark
+    public List<String> autocomplete() {
+        return repo.autocomplete("w" + ThreadLocalRandom.current().nextInt(VOCABULARY), 10);
+    }
+
+    /** Three words from a vocabulary of {@value #VOCABULARY}, so a term matches roughly 3 in that many names. */
+    private static String randomName(Random random) {
+        return "w" + random.nextInt(VOCABULARY) + " w" + random.nextInt(VOCABULARY) + " w" + random.nextInt(VOCABULARY);
+    }
+
+    private long randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(catalogSize);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the bodies {@code ProductController} returns, using an {@link ObjectMapper} configured the
+ * way Spring Boot configures the one behind its message converters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSerializationBenchmark {
+
+    @Param({"1", "50", "1000", "100000"})
+    public int products;
+
+    private ObjectWriter listWriter;
+    private ObjectWriter pageWriter;
+    private List<Product> list;
+    private ProductPage page;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        pageWriter = mapper.writerFor(ProductPage.class);
+        list = new ArrayList<>(products);
+        for (int i = 1; i <= products; i++) {
+            list.add(new Product((long) i, "Product " + i, i % 500 + 0.99));
+        }
+        page = new ProductPage(list, "MTAw");
+    }
+
+    @Benchmark
+    public int list() throws IOException {
+        out.reset();
+        listWriter.writeValue(out, list);
+        return out.size();
+    }
+
+    @Benchmark
+    public int page() throws IOException {
+        out.reset();
+        pageWriter.writeValue(out, page);
+        return out.size();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.onlinestore.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the same JMH selection once per thread count, since {@code -t} only takes a single value. The first argument
+ * is a comma-separated list of thread counts; the rest are ordinary JMH arguments, e.g.
+ * {@code 1,4,16,64 ProductRepositoryBenchmark.findById -p catalogSize=1000000}.
+ */
+public final class ThreadScaling {
+
+    private ThreadScaling() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        if (args.length == 0) {
+            System.err.println("usage: ThreadScaling <threads,threads,...> [jmh arguments]");
+            System.exit(1);
+        }
+        CommandLineOptions jmhArgs = new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length));
+        for (String threads : args[0].split(",")) {
+            new Runner(new OptionsBuilder().parent(jmhArgs).threads(Integer.parseInt(threads.trim())).build()).run();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.example.onlinestore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class OnlineStoreApplication {
     public static void main(String[] args) {
         SpringApplication.run(OnlineStoreApplication.class, args);
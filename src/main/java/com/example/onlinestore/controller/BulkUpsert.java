@@ -0,0 +1,98 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.BulkItemResult;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the items of one bulk upload and saves them {@value #BATCH} at a time through
+ * {@link ProductRepository#saveAll}, keeping a result slot per item in input order. Not thread-safe; items must be
+ * added by one thread at a time. Saving blocks until the write-ahead log has the batch.
+ */
+final class BulkUpsert {
+    static final int BATCH = 1000;
+
+    private final ProductRepository repo;
+    private final ObjectMapper mapper;
+    private final List<BulkItemResult> results = new ArrayList<>();
+    private final List<Product> batch = new ArrayList<>(BATCH);
+    private final List<Integer> batchIndexes = new ArrayList<>(BATCH);
+
+    BulkUpsert(ProductRepository repo, ObjectMapper mapper) {
+        this.repo = repo;
+        this.mapper = mapper;
+    }
+
+    void add(JsonNode node) {
+        int index = results.size();
+        Product p;
+        try {
+            p = mapper.treeToValue(node, Product.class);
+        } catch (JsonProcessingException e) {
+            fail(e.getOriginalMessage());
+            return;
+        }
+        if (p == null) {
+            fail("not a product");
+            return;
+        }
+        if (!validId(p)) {
+            fail("id must be between 1 and " + ProductRepository.MAX_ID);
+            return;
+        }
+        results.add(null);
+        batch.add(p);
+        batchIndexes.add(index);
+        if (batch.size() == BATCH) {
+            flush();
+        }
+    }
+
+    /** Adds one NDJSON line; blank lines are skipped and a malformed one fails only its own item. */
+    void addLine(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        try {
+            add(mapper.readTree(line));
+        } catch (JsonProcessingException e) {
+            fail(e.getOriginalMessage());
+        }
+    }
+
+    /** Records the next item as failed without saving anything. */
+    void fail(String error) {
+        results.add(new BulkItemResult(results.size(), BulkItemResult.Status.FAILED, null, null, error));
+    }
+
+    /** Whether {@code p} has no id or one that {@link ProductRepository#saveAll} accepts. */
+    static boolean validId(Product p) {
+        return p.getId() == null || p.getId() >= 1 && p.getId() <= ProductRepository.MAX_ID;
+    }
+
+    /** Saves what is left and returns every item's outcome. */
+    List<BulkItemResult> finish() {
+        flush();
+        return results;
+    }
+
+    private void flush() {
+        List<Product> previous = repo.saveAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Product p = batch.get(i);
+            int index = batchIndexes.get(i);
+            BulkItemResult.Status status = previous.get(i) == null
+                    ? BulkItemResult.Status.CREATED
+                    : BulkItemResult.Status.UPDATED;
+            results.set(index, new BulkItemResult(index, status, p.getId(), p.getVersion(), null));
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Cart;
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.repository.CartStore;
+import com.example.onlinestore.repository.OrderPipeline;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checkout shared by the servlet and reactive cart controllers: takes the session's cart out of the {@link CartStore},
+ * so that concurrent checkouts of one cart cannot both sell it, prices it and queues its lines on the
+ * {@link OrderPipeline}. A refused order puts the cart back. Nothing here waits for the pipeline.
+ */
+@Component
+class CartCheckout {
+    private final CartStore carts;
+    private final CartPricing pricing;
+    private final OrderPipeline orders;
+
+    CartCheckout(CartStore carts, CartPricing pricing, OrderPipeline orders) {
+        this.carts = carts;
+        this.pricing = pricing;
+        this.orders = orders;
+    }
+
+    /**
+     * The order placed for the session's cart. Fails with 400 for an empty cart (or one already being checked out),
+     * 409 if a product is gone or short of stock (nothing is sold then) and 503 while the order queue is full; the
+     * cart is left as it was in each case.
+     */
+    CompletableFuture<Order> checkout(String sessionId) {
+        pricing.checkSession(sessionId);
+        CartStore.Contents contents = carts.detach(sessionId);
+        if (contents == null || contents.productIds().length == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cart is empty");
+        }
+        Cart cart;
+        CompletableFuture<Long> placed;
+        try {
+            cart = pricing.price(sessionId, contents);
+            if (!cart.getUnavailable().isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "products no longer available: " + cart.getUnavailable());
+            }
+            placed = orders.submit(contents.productIds(), contents.quantities());
+        } catch (OrderPipeline.BusyException e) {
+            carts.restore(sessionId, contents);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        } catch (RuntimeException e) {
+            carts.restore(sessionId, contents);
+            throw e;
+        }
+        return placed.handle((id, failure) -> {
+            if (failure != null) {
+                carts.restore(sessionId, contents);
+                if (failure instanceof OrderPipeline.OutOfStockException) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, failure.getMessage());
+                }
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, failure.getMessage());
+            }
+            return new Order(id, sessionId, cart.getItems(), cart.getTotal());
+        });
+    }
+}
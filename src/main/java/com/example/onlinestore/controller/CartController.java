@@ -0,0 +1,77 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Cart;
+import com.example.onlinestore.model.CartItem;
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.repository.CartStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Shopping carts by session id. Carts live in memory ({@link CartStore}) and are dropped after a period without use;
+ * every response prices the cart at current catalog prices.
+ */
+@RestController
+@RequestMapping("/api/carts")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CartController {
+    private final CartStore carts;
+    private final CartPricing pricing;
+    private final CartCheckout checkout;
+
+    CartController(CartStore carts, CartPricing pricing, CartCheckout checkout) {
+        this.carts = carts;
+        this.pricing = pricing;
+        this.checkout = checkout;
+    }
+
+    /** The session's cart; a session without one gets an empty cart. */
+    @GetMapping("/{sessionId}")
+    public Cart get(@PathVariable String sessionId) {
+        pricing.checkSession(sessionId);
+        return pricing.price(sessionId, carts.get(sessionId));
+    }
+
+    /** Sets the body's {@code quantity} of a product in the cart, creating the cart if needed; 0 removes the line. */
+    @PutMapping("/{sessionId}/items/{productId}")
+    public Cart setQuantity(@PathVariable String sessionId, @PathVariable long productId,
+                            @RequestBody CartItem item) {
+        pricing.checkSession(sessionId);
+        pricing.checkQuantity(productId, item.getQuantity());
+        try {
+            return pricing.price(sessionId, carts.setQuantity(sessionId, productId, item.getQuantity()));
+        } catch (CartStore.FullException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{sessionId}/items/{productId}")
+    public Cart removeItem(@PathVariable String sessionId, @PathVariable long productId) {
+        pricing.checkSession(sessionId);
+        CartStore.Contents contents = carts.get(sessionId);
+        if (contents != null) {
+            contents = carts.setQuantity(sessionId, productId, 0);
+        }
+        return pricing.price(sessionId, contents);
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> delete(@PathVariable String sessionId) {
+        pricing.checkSession(sessionId);
+        return carts.remove(sessionId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Places an order for the cart: every line's units are sold, or none are (409). The cart is dropped once the
+     * order is placed; the request is completed when the order pipeline has committed it, without holding a thread.
+     */
+    @PostMapping("/{sessionId}/checkout")
+    public CompletableFuture<ResponseEntity<Order>> checkout(@PathVariable String sessionId) {
+        return checkout.checkout(sessionId).thenApply(order -> ResponseEntity.status(HttpStatus.CREATED).body(order));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Cart;
+import com.example.onlinestore.model.CartItem;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.CartStore;
+import com.example.onlinestore.repository.ProductRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cart handling shared by the servlet and reactive cart controllers: request checks, and pricing a cart's lines
+ * against the catalog with one batch lookup, so a cart of n lines costs one pass over the store rather than n reads.
+ * Totals are summed as decimals so that they come out as the prices read, without binary rounding drift.
+ */
+@Component
+class CartPricing {
+    static final int MAX_QUANTITY = 9999;
+    private static final int MAX_SESSION_ID = 128;
+
+    private final ProductRepository repo;
+
+    CartPricing(ProductRepository repo) {
+        this.repo = repo;
+    }
+
+    Cart price(String sessionId, CartStore.Contents contents) {
+        if (contents == null) {
+            return new Cart(sessionId, List.of(), List.of(), BigDecimal.ZERO);
+        }
+        long[] ids = contents.productIds();
+        // found in the order asked for, with missing products skipped
+        List<Product> found = repo.findAllById(ids);
+        List<CartItem> items = new ArrayList<>(found.size());
+        List<Long> unavailable = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        int next = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (next < found.size() && found.get(next).getId() == ids[i]) {
+                Product p = found.get(next++);
+                int quantity = contents.quantities()[i];
+                BigDecimal lineTotal = BigDecimal.valueOf(p.getPrice()).multiply(BigDecimal.valueOf(quantity));
+                items.add(new CartItem(p.getId(), p.getName(), p.getPrice(), quantity, lineTotal));
+                total = total.add(lineTotal);
+            } else {
+                unavailable.add(ids[i]);
+            }
+        }
+        return new Cart(sessionId, items, unavailable, total);
+    }
+
+    void checkSession(String sessionId) {
+        if (sessionId.length() > MAX_SESSION_ID) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "session id must be at most " + MAX_SESSION_ID + " characters");
+        }
+    }
+
+    /** Checks a quantity to put in a cart; a positive one must be for a product that exists. */
+    void checkQuantity(long productId, int quantity) {
+        if (quantity < 0 || quantity > MAX_QUANTITY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "quantity must be between 0 and " + MAX_QUANTITY);
+        }
+        if (quantity > 0 && repo.findById(productId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no product " + productId);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The JSON array served by {@code GET /api/products}, kept encoded between requests. The catalog is cut into segments
+ * of consecutive ids, each holding its products' JSON already joined with commas. A write only records its id; the
+ * next request re-encodes just the segments those ids fall into (splitting segments that grew, dropping ones that
+ * emptied) and then writes all segments back to back, so an unchanged catalog costs a version check and a copy.
+ *
+ * <p>The encoded catalog is immutable and published through a volatile field; refreshing it is serialized.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CatalogJsonCache implements ProductRepository.ChangeListener {
+    private static final int SEGMENT_SIZE = 1024;
+    // beyond this many unprocessed writes the next refresh re-encodes everything instead of queueing more ids
+    private static final int MAX_PENDING = 1 << 16;
+
+    /** Products from {@code firstId} up to the next segment's first id, as comma-separated JSON. */
+    private record Segment(long firstId, int products, byte[] json) {}
+
+    private record Catalog(long version, Segment[] segments, int products, long length) {}
+
+    private final ProductRepository repo;
+    private final ObjectWriter writer;
+    private final ConcurrentLinkedQueue<Long> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // not a monitor, so that virtual threads queued behind a long refresh do not pin their carriers
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    // set before the first refresh, which has nothing to re-encode incrementally
+    private volatile boolean overflowed = true;
+    private volatile Catalog catalog = new Catalog(Long.MIN_VALUE, new Segment[0], 0, 2);
+
+    CatalogJsonCache(ProductRepository repo, ObjectMapper mapper) {
+        this.repo = repo;
+        this.writer = mapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        repo.addListener(this);
+    }
+
+    /**
+     * Writes the catalog as a JSON array reflecting at least every write counted in {@code version}, which the caller
+     * must have read from {@link ProductRepository#version()} before calling.
+     *
+     * @return the number of products written
+     */
+    int write(long version, HttpServletResponse response) throws IOException {
+        Catalog c = catalog;
+        if (c.version() < version) {
+            c = refresh(version);
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLengthLong(c.length());
+        OutputStream out = response.getOutputStream();
+        out.write('[');
+        for (int i = 0; i < c.segments().length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(c.segments()[i].json());
+        }
+        out.write(']');
+        return c.products();
+    }
+
+    @Override
+    public void saved(Product p) {
+        changed(p.getId());
+    }
+
+    @Override
+    public void deleted(long id) {
+        changed(id);
+    }
+
+    private void changed(long id) {
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            pending.decrementAndGet();
+            overflowed = true;
+        } else {
+            changed.add(id);
+        }
+    }
+
+    private Catalog refresh(long version) {
+        refreshLock.lock();
+        try {
+            return refreshLocked(version);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Catalog refreshLocked(long version) {
+        Catalog c = catalog;
+        if (c.version() >= version) {
+            return c;
+        }
+        // every write counted in "version" queued its id or set the flag before the version moved, so draining
+        // after the caller read it picks up all of them
+        boolean all = overflowed || c.segments().length == 0;
+        overflowed = false;
+        BitSet dirty = new BitSet(c.segments().length);
+        int drained = 0;
+        for (Long id; (id = changed.poll()) != null; drained++) {
+            if (!all) {
+                dirty.set(segmentOf(c.segments(), id));
+            }
+        }
+        pending.addAndGet(-drained);
+
+        List<Segment> segments = new ArrayList<>();
+        if (all) {
+            try (ProductRepository.Scan scan = repo.scan()) {
+                encode(scan, Long.MIN_VALUE, Long.MAX_VALUE, segments);
+            }
+        } else {
+            Segment[] old = c.segments();
+            for (int i = 0; i < old.length; i++) {
+                if (!dirty.get(i)) {
+                    segments.add(old[i]);
+                    continue;
+                }
+                long firstId = old[i].firstId();
+                long end = i + 1 < old.length ? old[i + 1].firstId() : Long.MAX_VALUE;
+                try (ProductRepository.Scan from =
+                             firstId == Long.MIN_VALUE ? repo.scan() : repo.scanAfter(firstId - 1)) {
+                    encode(from, firstId, end, segments);
+                }
+            }
+            if (!segments.isEmpty() && segments.get(0).firstId() != Long.MIN_VALUE) {
+                // the first segment emptied; its successor now also covers the ids below it
+                Segment first = segments.get(0);
+                segments.set(0, new Segment(Long.MIN_VALUE, first.products(), first.json()));
+            }
+        }
+        long length = 2 + Math.max(0, segments.size() - 1);
+        int products = 0;
+        for (Segment s : segments) {
+            length += s.json().length;
+            products += s.products();
+        }
+        catalog = new Catalog(version, segments.toArray(new Segment[0]), products, length);
+        return catalog;
+    }
+
+    /**
+     * Encodes the products below {@code end} into segments of at most {@value #SEGMENT_SIZE}; the first one starts
+     * at {@code firstId} so that the range it covers does not shrink.
+     */
+    private void encode(Iterator<Product> products, long firstId, long end, List<Segment> segments) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (JsonGenerator gen = writer.getFactory().createGenerator(buf)) {
+            gen.setRootValueSeparator(null);
+            int count = 0;
+            long segmentStart = firstId;
+            while (products.hasNext()) {
+                Product p = products.next();
+                if (p.getId() >= end) {
+                    break;
+                }
+                if (count == SEGMENT_SIZE) {
+                    gen.flush();
+                    segments.add(new Segment(segmentStart, count, buf.toByteArray()));
+                    buf.reset();
+                    count = 0;
+                    segmentStart = p.getId();
+                }
+                if (count > 0) {
+                    gen.writeRaw(',');
+                }
+                writer.writeValue(gen, p);
+                count++;
+            }
+            gen.flush();
+            if (count > 0) {
+                segments.add(new Segment(segmentStart, count, buf.toByteArray()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Index of the last segment whose first id is at most {@code id}. */
+    private static int segmentOf(Segment[] segments, long id) {
+        int lo = 0;
+        int hi = segments.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segments[mid].firstId() <= id) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
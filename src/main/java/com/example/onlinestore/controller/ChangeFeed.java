@@ -0,0 +1,158 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.repository.ChangeLog;
+import com.example.onlinestore.repository.ProductRepository;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events over the repository's {@link ChangeLog}, shared by the servlet and reactive controllers. Each
+ * change becomes a {@code saved} or {@code deleted} event whose id is its sequence number, so a client resumes with
+ * {@code Last-Event-ID} (or {@code ?since=}) and receives only what it has not seen. A position the log cannot serve
+ * gets one {@code reset} event carrying the current head as its id and data, after which the stream ends: the client
+ * reloads the catalog and reconnects from there.
+ *
+ * <p>No thread waits for changes. A write, once its lock is released, only bumps one counter of this feed; whoever
+ * raises it from zero schedules a task on the parallel scheduler that wakes the open streams, so writes cost the same
+ * however many streams are open, and a burst of them wakes each stream once or twice rather than once per write. A
+ * woken stream reads whatever the log has published past its position, as far as its subscriber has asked for, in a
+ * short task of its own; a wake-up that arrives while it is reading makes it read again, so none is lost. A stream
+ * that has sent nothing for a while sends a comment so that dead connections are noticed, once its subscriber asks
+ * for more.
+ */
+@Component
+class ChangeFeed {
+    private static final int BATCH = 256;
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+    private final ProductRepository repo;
+    private final Scheduler scheduler = Schedulers.parallel();
+    private final List<Stream> streams = new CopyOnWriteArrayList<>();
+    // writes not yet passed on to the streams; whoever raises it from 0 schedules the dispatch
+    private final AtomicInteger signals = new AtomicInteger();
+
+    ChangeFeed(ProductRepository repo) {
+        this.repo = repo;
+        repo.onChangesPublished(this::signal);
+    }
+
+    /** Changes after sequence number {@code after}, or after the latest one when it is {@code null}. */
+    Flux<ServerSentEvent<Object>> stream(Long after) {
+        return Flux.create(sink -> {
+            Stream stream = new Stream(sink, after != null ? after : repo.changeHead());
+            streams.add(stream);
+            long beat = HEARTBEAT.toMillis();
+            Disposable heartbeat = scheduler.schedulePeriodically(stream::heartbeat, beat, beat, TimeUnit.MILLISECONDS);
+            sink.onRequest(n -> stream.wake());
+            sink.onDispose(() -> {
+                streams.remove(stream);
+                heartbeat.dispose();
+            });
+            // catches up on whatever was written before the stream was registered
+            stream.wake();
+        });
+    }
+
+    private void signal() {
+        // a stream opened later catches up on its own
+        if (!streams.isEmpty() && signals.getAndIncrement() == 0) {
+            scheduler.schedule(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        int missed = 1;
+        do {
+            for (Stream stream : streams) {
+                stream.wake();
+            }
+            missed = signals.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private final class Stream {
+        private final FluxSink<ServerSentEvent<Object>> sink;
+        // wake-ups not yet acted on; whoever raises it from 0 schedules the drain
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean heartbeatDue;
+        // touched by the drain only, which never runs twice at once
+        private long position;
+        private boolean sentSinceHeartbeat;
+        private boolean done;
+
+        Stream(FluxSink<ServerSentEvent<Object>> sink, long position) {
+            this.sink = sink;
+            this.position = position;
+        }
+
+        void wake() {
+            if (pending.getAndIncrement() == 0) {
+                scheduler.schedule(this::drain);
+            }
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            wake();
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    send();
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void send() {
+            try {
+                long requested;
+                while ((requested = sink.requestedFromDownstream()) > 0) {
+                    List<ChangeLog.Change> changes = repo.changesAfter(position, (int) Math.min(BATCH, requested));
+                    if (changes.isEmpty()) {
+                        break;
+                    }
+                    for (ChangeLog.Change c : changes) {
+                        sink.next(ServerSentEvent.builder()
+                                .id(Long.toString(c.seq()))
+                                .event(c.op() == ChangeLog.Op.SAVED ? "saved" : "deleted")
+                                .data(c)
+                                .build());
+                    }
+                    position = changes.get(changes.size() - 1).seq();
+                    sentSinceHeartbeat = true;
+                }
+                // like every event, only sent on demand rather than buffered
+                if (heartbeatDue && sink.requestedFromDownstream() > 0) {
+                    heartbeatDue = false;
+                    if (!sentSinceHeartbeat) {
+                        sink.next(ServerSentEvent.builder().comment("heartbeat").build());
+                    }
+                    sentSinceHeartbeat = false;
+                }
+            } catch (ChangeLog.TruncatedException e) {
+                long head = repo.changeHead();
+                sink.next(ServerSentEvent.builder()
+                        .id(Long.toString(head))
+                        .event("reset")
+                        .data(head)
+                        .build());
+                sink.complete();
+                done = true;
+            }
+        }
+    }
+}
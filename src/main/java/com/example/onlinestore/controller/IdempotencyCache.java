@@ -0,0 +1,130 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.StoreProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * Products created under an {@code Idempotency-Key}, so that a retried create is answered with the product the first
+ * attempt made instead of making another. A key is claimed before the product is saved; a retry that arrives while
+ * the first attempt is still saving waits for its outcome, and one whose attempt failed takes the key over.
+ *
+ * <p>Keys are spread over striped segments, each a map in insertion order under its own lock. Insertion order is also
+ * expiry order, so every claim drops its segment's expired keys from the head and, once the segment is at its share of
+ * {@code store.idempotency.max-keys}, its oldest settled key too. A key whose attempt is still saving is never dropped,
+ * however old, since a retry would then save the product a second time. The cache thus holds at most
+ * {@code max-keys} keys whatever the write rate, more only while creates in progress fill a segment's share, and
+ * forgets a settled key after {@code store.idempotency.ttl} at the latest.
+ */
+@Component
+class IdempotencyCache {
+    static final String HEADER = "Idempotency-Key";
+    static final int MAX_KEY_LENGTH = 255;
+    private static final int SEGMENTS = 64;
+
+    /** The outcome of {@link #claim}: {@code owner} if the caller must create the product and settle {@code result}. */
+    record Claim(boolean owner, CompletableFuture<Product> result) {}
+
+    private record Entry(Product request, CompletableFuture<Product> result, long created) {}
+
+    private final LinkedHashMap<String, Entry>[] segments;
+    private final int segmentKeys;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    @Autowired
+    IdempotencyCache(StoreProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    IdempotencyCache(StoreProperties properties, LongSupplier clock) {
+        StoreProperties.Idempotency config = properties.getIdempotency();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        LinkedHashMap<String, Entry>[] segments = new LinkedHashMap[SEGMENTS];
+        this.segments = segments;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new LinkedHashMap<>();
+        }
+        this.segmentKeys = Math.max(1, (config.getMaxKeys() + SEGMENTS - 1) / SEGMENTS);
+        this.ttlMillis = config.getTtl().toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Claims {@code key} for creating {@code request}, or returns the attempt already made under it.
+     *
+     * @throws ResponseStatusException 400 for a key that is too long; 422 if the key was used for a different product
+     */
+    Claim claim(String key, Product request) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        LinkedHashMap<String, Entry> segment = segments[(key.hashCode() * 0x9E3779B9 >>> 16) & (SEGMENTS - 1)];
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry e = segment.get(key);
+            if (e != null && (!e.result().isDone()
+                    || now - e.created() < ttlMillis && !e.result().isCompletedExceptionally())) {
+                if (!sameProduct(e.request(), request)) {
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                            HEADER + " was already used for a different product");
+                }
+                return new Claim(false, e.result());
+            }
+            if (e != null) {
+                // expired, or the attempt failed: start over at the tail
+                segment.remove(key);
+            }
+            evict(segment, now);
+            Entry claimed = new Entry(copy(request), new CompletableFuture<>(), now);
+            segment.put(key, claimed);
+            return new Claim(true, claimed.result());
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (LinkedHashMap<String, Entry> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private void evict(LinkedHashMap<String, Entry> segment, long now) {
+        Iterator<Map.Entry<String, Entry>> oldest = segment.entrySet().iterator();
+        while (oldest.hasNext()) {
+            Entry e = oldest.next().getValue();
+            if (!e.result().isDone()) {
+                // still saving; its retries must find it
+                continue;
+            }
+            if (segment.size() < segmentKeys && now - e.created() < ttlMillis) {
+                break;
+            }
+            oldest.remove();
+        }
+    }
+
+    private static boolean sameProduct(Product a, Product b) {
+        return Objects.equals(a.getId(), b.getId()) && Objects.equals(a.getName(), b.getName())
+                && Double.compare(a.getPrice(), b.getPrice()) == 0;
+    }
+
+    // the request body is kept to compare retries against, and the save may assign its id
+    private static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getPrice());
+    }
+}
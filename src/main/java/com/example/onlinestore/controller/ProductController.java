@@ -1,36 +1,434 @@
 package com.example.onlinestore.controller;
 
+import com.example.onlinestore.model.BulkItemResult;
 import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.ProductPage;
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+import com.example.onlinestore.repository.ChangeLog;
 import com.example.onlinestore.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ProductController {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_COMPLETIONS = 10;
+    static final String NDJSON = "application/x-ndjson";
+
     private final ProductRepository repo;
+    private final ObjectWriter lineWriter;
+    private final ObjectMapper mapper;
+    private final ProductJsonCache productJson;
+    private final CatalogJsonCache catalogJson;
+    private final ChangeFeed changeFeed;
+    private final IdempotencyCache idempotency;
 
-    public ProductController(ProductRepository repo) {
+    public ProductController(ProductRepository repo, ObjectMapper mapper, ProductJsonCache productJson,
+                             CatalogJsonCache catalogJson, ChangeFeed changeFeed,
+                             IdempotencyCache idempotency) {
         this.repo = repo;
+        this.mapper = mapper;
+        this.productJson = productJson;
+        this.catalogJson = catalogJson;
+        this.changeFeed = changeFeed;
+        this.idempotency = idempotency;
+        // flushing is left to the generator's buffer so the socket sees full chunks, not one write per product
+        this.lineWriter = mapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /**
+     * Tagged with the store-wide version, so a client revalidating an unchanged catalog gets a 304 without the
+     * catalog being read or serialized. Otherwise the body is copied from {@link CatalogJsonCache}, which re-encodes
+     * only the parts of the catalog written since the last request.
+     */
     @GetMapping
-    public List<Product> list() {
-        return repo.findAll();
+    public void list(WebRequest request, HttpServletResponse response) throws IOException {
+        long version = repo.version();
+        if (!request.checkNotModified(etag(version))) {
+            ProductRequestRecorder.results(catalogJson.write(version, response));
+        }
+    }
+
+    @GetMapping(params = "limit")
+    public ProductPage page(@RequestParam int limit, @RequestParam(required = false) String cursor,
+                            WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (request.checkNotModified(etag(repo.version()))) {
+            return null;
+        }
+        // fetch one extra item to learn whether another page exists without a second lookup
+        List<Product> items = repo.findPage(decodeCursor(cursor), limit + 1);
+        String next = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            next = encodeCursor(items.get(limit - 1).getId());
+        }
+        return new ProductPage(items, next);
+    }
+
+    /**
+     * Products priced within {@code [minPrice, maxPrice]} (either bound may be omitted), cheapest first, answered
+     * from the repository's price index rather than a scan. Paged like the id listing: {@code nextCursor} holds the
+     * price and id of the last item and is passed back as {@code cursor} with the same bounds.
+     */
+    @GetMapping(params = "sort=price")
+    public ProductPage byPrice(@RequestParam(required = false) Double minPrice,
+                               @RequestParam(required = false) Double maxPrice,
+                               @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                               @RequestParam(required = false) String cursor) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice and maxPrice must be numbers");
+        }
+        if (min > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice must not exceed maxPrice");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        PriceCursor after = decodePriceCursor(cursor);
+        List<Product> items = after == null
+                ? repo.findByPriceRange(min, max, 0, null, limit + 1)
+                : repo.findByPriceRange(min, max, after.price(), after.id(), limit + 1);
+        return pricePage(items, limit);
+    }
+
+    @GetMapping("/search")
+    public List<Product> search(@RequestParam("q") String query, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repo.search(query, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<String> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_COMPLETIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_COMPLETIONS);
+        }
+        return repo.autocomplete(prefix, limit);
+    }
+
+    /**
+     * Streams the whole catalog as newline-delimited JSON straight onto the response. Products are read from
+     * the live store one at a time, so memory stays flat regardless of catalog size, and the blocking servlet
+     * output stream throttles iteration to the client's read rate.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator gen = lineWriter.getFactory().createGenerator(response.getOutputStream());
+             ProductRepository.Scan scan = repo.scan()) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            int count = 0;
+            while (scan.hasNext()) {
+                lineWriter.writeValue(gen, scan.next());
+                gen.writeRaw('\n');
+                count++;
+            }
+            ProductRequestRecorder.results(count);
+        }
+    }
+
+    /**
+     * Server-Sent Events for every save and delete from now on, or after the sequence number given as
+     * {@code Last-Event-ID} or {@code since}; see {@link ChangeFeed}.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> changes(@RequestParam(required = false) Long since,
+                                                 @RequestHeader(value = "Last-Event-ID", required = false)
+                                                 Long lastEventId) {
+        return changeFeed.stream(lastEventId != null ? lastEventId : since);
+    }
+
+    /**
+     * Incremental sync: products created or updated and tombstones for products deleted after version {@code since},
+     * with the version to ask from next time. {@code since=0} returns the whole catalog. A position whose deletes are
+     * no longer remembered gets 410 Gone, and the client syncs again from 0.
+     */
+    @GetMapping(value = "/changes", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ProductChanges changesSince(@RequestParam long since,
+                                       @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            return repo.changesSince(since, limit);
+        } catch (ChangeLog.TruncatedException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, "changes since " + since + " are no longer available");
+        }
     }
 
+    /**
+     * Tagged with the product's version; Spring answers a matching {@code If-None-Match} with 304 and no body. The
+     * body is the product's cached JSON, so a hot product is not serialized again until it changes.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Product> get(@PathVariable Long id) {
-        return repo.findById(id).map(ResponseEntity::ok)
+    public ResponseEntity<byte[]> get(@PathVariable Long id) {
+        return repo.findById(id)
+                .map(p -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag(p.getVersion()))
+                        .body(productJson.json(p)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * The products with the given ids ({@code ?ids=1,2,3}) in one response, in the order requested; unknown ids are
+     * left out. Each product is written from its cached JSON.
+     */
+    @GetMapping(params = "ids")
+    public void getAll(@RequestParam long[] ids, HttpServletResponse response) throws IOException {
+        writeAll(ids, response);
+    }
+
+    /** A multi-get is not paged; rather than ignore one of the two, the combination is refused. */
+    @GetMapping(params = {"ids", "limit"})
+    public void getAllPaged() {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids cannot be combined with limit");
+    }
+
+    /** Same as {@code GET ?ids=}, for id sets too large for a URL; the body is a JSON array of ids. */
+    @PostMapping("/lookup")
+    public void lookup(@RequestBody long[] ids, HttpServletResponse response) throws IOException {
+        writeAll(ids, response);
+    }
+
+    /**
+     * Creates a product. With an {@code Idempotency-Key} header, a retry of the same request is answered with the
+     * product the first attempt created (see {@link IdempotencyCache}); reusing a key for another product is a 422.
+     */
     @PostMapping
-    public ResponseEntity<Product> create(@RequestBody Product p) {
-        Product saved = repo.save(p);
+    public ResponseEntity<Product> create(@RequestBody Product p,
+                                          @RequestHeader(value = IdempotencyCache.HEADER, required = false)
+                                          String key) {
+        checkId(p);
+        Product saved = key == null ? repo.save(p) : createOnce(key, p);
         return ResponseEntity.created(URI.create("/api/products/" + saved.getId())).body(saved);
     }
+
+    private Product createOnce(String key, Product p) {
+        while (true) {
+            IdempotencyCache.Claim claim = idempotency.claim(key, p);
+            if (claim.owner()) {
+                try {
+                    Product saved = repo.save(p);
+                    claim.result().complete(saved);
+                    return saved;
+                } catch (RuntimeException e) {
+                    claim.result().completeExceptionally(e);
+                    throw e;
+                }
+            }
+            try {
+                return claim.result().join();
+            } catch (CompletionException | CancellationException e) {
+                // the first attempt failed and gave up the key; make this one the attempt
+            }
+        }
+    }
+
+    /**
+     * Creates or replaces many products in one request. The body is a JSON array of products; items with an id
+     * replace that product and items without one are created. Items are saved in batches (see {@link BulkUpsert}),
+     * and the response reports each item's outcome in input order. An item that cannot be read as a product fails on
+     * its own; malformed JSON fails the item where it starts and ends the upload, keeping what was saved before it.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BulkItemResult> bulk(HttpServletRequest request) throws IOException {
+        BulkUpsert upsert = new BulkUpsert(repo, mapper);
+        try (JsonParser parser = mapper.getFactory().createParser(request.getInputStream())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "expected a JSON array of products");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "unexpected end of input");
+                }
+                upsert.add(parser.readValueAsTree());
+            }
+        } catch (JsonProcessingException e) {
+            upsert.fail(e.getOriginalMessage());
+        }
+        return upsert.finish();
+    }
+
+    /** Same as the JSON array upload, with one product per line; a malformed line only fails that item. */
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    public List<BulkItemResult> bulkLines(HttpServletRequest request) throws IOException {
+        BulkUpsert upsert = new BulkUpsert(repo, mapper);
+        BufferedReader lines = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        for (String line; (line = lines.readLine()) != null; ) {
+            upsert.addLine(line);
+        }
+        return upsert.finish();
+    }
+
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Stock> stock(@PathVariable long id) {
+        return ResponseEntity.of(repo.stock(id));
+    }
+
+    /** Sets the units available for reservation from the body's {@code available}. */
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<Stock> setStock(@PathVariable long id, @RequestBody Stock stock) {
+        if (stock.getAvailable() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "available must not be negative");
+        }
+        return ResponseEntity.of(repo.setStock(id, stock.getAvailable()));
+    }
+
+    /**
+     * Reserves the body's {@code quantity} units of a product, or answers 409 if fewer are available. The units stay
+     * held until the reservation is committed or released.
+     */
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<Reservation> reserve(@PathVariable long id, @RequestBody Reservation request) {
+        if (request.getQuantity() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be at least 1");
+        }
+        Reservation held = repo.reserve(id, request.getQuantity()).orElseThrow(() -> outOfStock(id));
+        return ResponseEntity.created(URI.create("/api/products/reservations/" + held.getId())).body(held);
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<Reservation> commitReservation(@PathVariable long reservationId) {
+        return ResponseEntity.of(repo.commitReservation(reservationId));
+    }
+
+    @PostMapping("/reservations/{reservationId}/release")
+    public ResponseEntity<Reservation> releaseReservation(@PathVariable long reservationId) {
+        return ResponseEntity.of(repo.releaseReservation(reservationId));
+    }
+
+    /** 404 for an unknown product, 409 for one without enough stock. */
+    private ResponseStatusException outOfStock(long id) {
+        return repo.stock(id).isEmpty()
+                ? new ResponseStatusException(HttpStatus.NOT_FOUND)
+                : new ResponseStatusException(HttpStatus.CONFLICT, "not enough stock");
+    }
+
+    private void writeAll(long[] ids, HttpServletResponse response) throws IOException {
+        if (ids.length > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_PAGE_SIZE + " ids per request");
+        }
+        List<Product> products = repo.findAllById(ids);
+        byte[][] json = new byte[products.size()][];
+        long length = 2 + Math.max(0, json.length - 1);
+        for (int i = 0; i < json.length; i++) {
+            json[i] = productJson.json(products.get(i));
+            length += json[i].length;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLengthLong(length);
+        OutputStream out = response.getOutputStream();
+        out.write('[');
+        for (int i = 0; i < json.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(json[i]);
+        }
+        out.write(']');
+        ProductRequestRecorder.results(json.length);
+    }
+
+    /** Rejects an explicit id the repository would refuse, before anything (an idempotency key included) is taken. */
+    static void checkId(Product p) {
+        if (!BulkUpsert.validId(p)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "id must be between 1 and " + ProductRepository.MAX_ID);
+        }
+    }
+
+    static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** Where a price-ordered listing resumes: just past the product with this price and id. */
+    record PriceCursor(double price, long id) {
+    }
+
+    /** The first {@code limit} of {@code items}, fetched one longer, with a price cursor when there was one more. */
+    static ProductPage pricePage(List<Product> items, int limit) {
+        if (items.size() <= limit) {
+            return new ProductPage(items, null);
+        }
+        List<Product> first = items.subList(0, limit);
+        Product last = first.get(limit - 1);
+        String token = Double.toString(last.getPrice()) + ':' + last.getId();
+        return new ProductPage(first,
+                Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    static PriceCursor decodePriceCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int colon = token.lastIndexOf(':');
+            double price = Double.parseDouble(token.substring(0, Math.max(colon, 0)));
+            if (Double.isNaN(price)) {
+                throw new IllegalArgumentException(token);
+            }
+            return new PriceCursor(price, Long.parseLong(token.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+    }
+
+    static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+
+/**
+ * UTF-8 JSON of recently read products, so that a hot product is written to the response without running Jackson.
+ * The cache is direct-mapped: each id hashes to one slot and displaces whatever held it, which bounds memory and keeps
+ * lookups to one array read. An entry is only used while its version matches the product being served, so a write
+ * can never be answered with stale bytes; the repository's change notifications just free slots early.
+ *
+ * <p>Entries are immutable and slots are read and replaced without locks.
+ */
+@Component
+class ProductJsonCache implements ProductRepository.ChangeListener {
+    private record Entry(long id, long version, byte[] json) {}
+
+    private final ObjectWriter writer;
+    private final Entry[] slots;
+
+    ProductJsonCache(ProductRepository repo, ObjectMapper mapper, StoreProperties properties) {
+        this.writer = mapper.writerFor(Product.class);
+        this.slots = new Entry[Integer.highestOneBit(Math.max(1, properties.getJsonCache().getEntries() - 1)) << 1];
+        repo.addListener(this);
+    }
+
+    /** The product's JSON, encoded now only if the cache holds no copy of this version. */
+    byte[] json(Product p) {
+        long id = p.getId();
+        int slot = slot(id);
+        Entry e = slots[slot];
+        if (e != null && e.id() == id && e.version() == p.getVersion()) {
+            return e.json();
+        }
+        byte[] json = encode(p);
+        slots[slot] = new Entry(id, p.getVersion(), json);
+        return json;
+    }
+
+    byte[] encode(Product p) {
+        try {
+            return writer.writeValueAsBytes(p);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void saved(Product p) {
+        evict(p.getId());
+    }
+
+    @Override
+    public void deleted(long id) {
+        evict(id);
+    }
+
+    private void evict(long id) {
+        int slot = slot(id);
+        Entry e = slots[slot];
+        if (e != null && e.id() == id) {
+            slots[slot] = null;
+        }
+    }
+
+    private int slot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (slots.length - 1);
+    }
+}
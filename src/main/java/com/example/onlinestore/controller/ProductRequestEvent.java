@@ -0,0 +1,43 @@
+package com.example.onlinestore.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one product API request, timed from the filter chain's entry to the response being
+ * written; the {@code StoreOperation} events inside it show how much of that was repository time. Recorded by
+ * {@link ProductRequestRecorder}.
+ */
+@Name("com.example.onlinestore.ProductRequest")
+@Label("Product API Request")
+@Category({"Online Store", "HTTP"})
+@Description("A request to the product API")
+@StackTrace(false)
+class ProductRequestEvent extends Event {
+    @Label("Request Id")
+    @Description("The X-Request-Id header, or a sequence number assigned on arrival")
+    String requestId;
+
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    @Description("Handler mapping pattern, such as /api/products/{id}")
+    String uri;
+
+    @Label("Status")
+    int status;
+
+    @Label("Results")
+    @Description("Products (or names, or changes) in the response; -1 if the handler did not say")
+    int results = -1;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+}
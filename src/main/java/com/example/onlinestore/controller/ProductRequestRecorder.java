@@ -0,0 +1,124 @@
+package com.example.onlinestore.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a {@link ProductRequestEvent} for every product API request while a Flight Recorder recording has the event
+ * enabled. Only then is the response wrapped to count the bytes written to its output stream; otherwise the filter
+ * just checks the flag and passes the request on. Handlers report how many results they returned through
+ * {@link #results(int)}. Requests that go asynchronous (change streams) are not recorded.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class ProductRequestRecorder extends OncePerRequestFilter {
+    private static final String EVENT = ProductRequestRecorder.class.getName() + ".event";
+    private static final String REQUEST_ID = "X-Request-Id";
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /** Sets the result count on the current request's event, if it is being recorded. */
+    static void results(int count) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(EVENT, RequestAttributes.SCOPE_REQUEST) instanceof ProductRequestEvent e) {
+            e.results = count;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/products");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ProductRequestEvent event = new ProductRequestEvent();
+        if (!event.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        event.begin();
+        CountingResponse counting = new CountingResponse(response);
+        request.setAttribute(EVENT, event);
+        try {
+            chain.doFilter(request, counting);
+        } finally {
+            if (!request.isAsyncStarted() && event.shouldCommit()) {
+                String requestId = request.getHeader(REQUEST_ID);
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                event.requestId = requestId != null ? requestId : Long.toString(requestIds.incrementAndGet());
+                event.method = request.getMethod();
+                event.uri = pattern != null ? pattern.toString() : request.getRequestURI();
+                event.status = response.getStatus();
+                event.bytesWritten = counting.bytes;
+                event.commit();
+            }
+        }
+    }
+
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        long bytes;
+        private ServletOutputStream out;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                ServletOutputStream target = super.getOutputStream();
+                out = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.ProductPage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Reports how many results a {@link ProductController} handler returned to {@link ProductRequestRecorder}, for the
+ * handlers that return a body; the ones that write the response themselves report it directly.
+ */
+@ControllerAdvice(assignableTypes = ProductController.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class ProductResultsAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Collection<?> items) {
+            ProductRequestRecorder.results(items.size());
+        } else if (body instanceof ProductPage page) {
+            ProductRequestRecorder.results(page.getItems().size());
+        } else if (body instanceof ProductChanges changes) {
+            ProductRequestRecorder.results(changes.getProducts().size() + changes.getDeleted().size());
+        } else if (body != null) {
+            // a single product, as an object or as its cached JSON
+            ProductRequestRecorder.results(1);
+        }
+        return body;
+    }
+}
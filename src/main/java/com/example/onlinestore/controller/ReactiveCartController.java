@@ -0,0 +1,74 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Cart;
+import com.example.onlinestore.model.CartItem;
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.repository.CartStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@link CartController} API for the event-loop deployment. Carts and prices are read from memory, so handlers
+ * run on the subscribing thread.
+ */
+@RestController
+@RequestMapping("/api/carts")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCartController {
+    private final CartStore carts;
+    private final CartPricing pricing;
+    private final CartCheckout checkout;
+
+    ReactiveCartController(CartStore carts, CartPricing pricing, CartCheckout checkout) {
+        this.carts = carts;
+        this.pricing = pricing;
+        this.checkout = checkout;
+    }
+
+    @GetMapping("/{sessionId}")
+    public Mono<Cart> get(@PathVariable String sessionId) {
+        pricing.checkSession(sessionId);
+        return Mono.fromSupplier(() -> pricing.price(sessionId, carts.get(sessionId)));
+    }
+
+    @PutMapping("/{sessionId}/items/{productId}")
+    public Mono<Cart> setQuantity(@PathVariable String sessionId, @PathVariable long productId,
+                                  @RequestBody CartItem item) {
+        pricing.checkSession(sessionId);
+        return Mono.fromSupplier(() -> {
+            pricing.checkQuantity(productId, item.getQuantity());
+            return pricing.price(sessionId, carts.setQuantity(sessionId, productId, item.getQuantity()));
+        }).onErrorMap(CartStore.FullException.class,
+                e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+    }
+
+    @DeleteMapping("/{sessionId}/items/{productId}")
+    public Mono<Cart> removeItem(@PathVariable String sessionId, @PathVariable long productId) {
+        pricing.checkSession(sessionId);
+        return Mono.fromSupplier(() -> {
+            CartStore.Contents contents = carts.get(sessionId);
+            if (contents != null) {
+                contents = carts.setQuantity(sessionId, productId, 0);
+            }
+            return pricing.price(sessionId, contents);
+        });
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable String sessionId) {
+        pricing.checkSession(sessionId);
+        return Mono.fromSupplier(() -> carts.remove(sessionId)
+                ? ResponseEntity.noContent().<Void>build()
+                : ResponseEntity.notFound().<Void>build());
+    }
+
+    @PostMapping("/{sessionId}/checkout")
+    public Mono<ResponseEntity<Order>> checkout(@PathVariable String sessionId) {
+        return Mono.defer(() -> Mono.fromFuture(checkout.checkout(sessionId)))
+                .map(order -> ResponseEntity.status(HttpStatus.CREATED).body(order));
+    }
+}
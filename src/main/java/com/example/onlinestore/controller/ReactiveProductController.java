@@ -0,0 +1,299 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.BulkItemResult;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.ProductPage;
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+import com.example.onlinestore.repository.ChangeLog;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.ReactiveProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.onlinestore.controller.ProductController.MAX_COMPLETIONS;
+import static com.example.onlinestore.controller.ProductController.MAX_PAGE_SIZE;
+import static com.example.onlinestore.controller.ProductController.NDJSON;
+import static com.example.onlinestore.controller.ProductController.PriceCursor;
+import static com.example.onlinestore.controller.ProductController.checkId;
+import static com.example.onlinestore.controller.ProductController.decodeCursor;
+import static com.example.onlinestore.controller.ProductController.decodePriceCursor;
+import static com.example.onlinestore.controller.ProductController.encodeCursor;
+import static com.example.onlinestore.controller.ProductController.etag;
+import static com.example.onlinestore.controller.ProductController.pricePage;
+
+/**
+ * The {@link ProductController} API for the event-loop deployment (profile {@code reactive}, on Netty). Endpoints,
+ * parameters, limits and ETags are the same; bodies are produced through {@link ReactiveProductRepository}, so no
+ * handler blocks an event loop. Listings are written as {@link Flux}es that pull products from the store while the
+ * response is being sent, so a large catalog is never held in memory.
+ */
+@RestController
+@RequestMapping("/api/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductController {
+    private final ReactiveProductRepository repo;
+    // bulk uploads save through the blocking repository on the bounded elastic scheduler
+    private final ProductRepository blockingRepo;
+    private final ObjectMapper mapper;
+    private final ProductJsonCache productJson;
+    private final ChangeFeed changeFeed;
+    private final IdempotencyCache idempotency;
+
+    public ReactiveProductController(ReactiveProductRepository repo, ProductRepository blockingRepo,
+                                     ObjectMapper mapper, ProductJsonCache productJson, ChangeFeed changeFeed,
+                                     IdempotencyCache idempotency) {
+        this.repo = repo;
+        this.blockingRepo = blockingRepo;
+        this.mapper = mapper;
+        this.productJson = productJson;
+        this.changeFeed = changeFeed;
+        this.idempotency = idempotency;
+    }
+
+    /**
+     * Tagged with the store-wide version. On a matching {@code If-None-Match} the response is a 304 and the catalog is
+     * never subscribed to; otherwise it streams out as a JSON array.
+     */
+    @GetMapping
+    public ResponseEntity<Flux<Product>> list() {
+        return ResponseEntity.ok().eTag(etag(repo.version())).body(repo.findAll());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<Mono<ProductPage>> page(@RequestParam int limit,
+                                                  @RequestParam(required = false) String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Long afterId = decodeCursor(cursor);
+        long version = repo.version();
+        // fetch one extra item to learn whether another page exists without a second lookup
+        Mono<ProductPage> page = repo.findPage(afterId, limit + 1).map(items -> {
+            if (items.size() <= limit) {
+                return new ProductPage(items, null);
+            }
+            List<Product> first = items.subList(0, limit);
+            return new ProductPage(first, encodeCursor(first.get(limit - 1).getId()));
+        });
+        return ResponseEntity.ok().eTag(etag(version)).body(page);
+    }
+
+    @GetMapping(params = "sort=price")
+    public Mono<ProductPage> byPrice(@RequestParam(required = false) Double minPrice,
+                                     @RequestParam(required = false) Double maxPrice,
+                                     @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                                     @RequestParam(required = false) String cursor) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        if (Double.isNaN(min) || Double.isNaN(max)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice and maxPrice must be numbers");
+        }
+        if (min > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minPrice must not exceed maxPrice");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        PriceCursor after = decodePriceCursor(cursor);
+        Mono<List<Product>> items = after == null
+                ? repo.findByPriceRange(min, max, 0, null, limit + 1)
+                : repo.findByPriceRange(min, max, after.price(), after.id(), limit + 1);
+        return items.map(list -> pricePage(list, limit));
+    }
+
+    @GetMapping("/search")
+    public Flux<Product> search(@RequestParam("q") String query, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repo.search(query, limit);
+    }
+
+    @GetMapping("/autocomplete")
+    public Mono<List<String>> autocomplete(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_COMPLETIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_COMPLETIONS);
+        }
+        // collected, since a Flux of strings would be written as plain text rather than a JSON array
+        return repo.autocomplete(prefix, limit).collectList();
+    }
+
+    /** The whole catalog as newline-delimited JSON, written product by product as the client reads. */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public Flux<Product> export() {
+        return repo.findAll();
+    }
+
+    /**
+     * Server-Sent Events for every save and delete from now on, or after the sequence number given as
+     * {@code Last-Event-ID} or {@code since}; see {@link ChangeFeed}.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> changes(@RequestParam(required = false) Long since,
+                                                 @RequestHeader(value = "Last-Event-ID", required = false)
+                                                 Long lastEventId) {
+        return changeFeed.stream(lastEventId != null ? lastEventId : since);
+    }
+
+    /** Incremental sync as in {@link ProductController#changesSince}; 410 Gone asks the client to sync from 0. */
+    @GetMapping(value = "/changes", params = "since", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ProductChanges> changesSince(@RequestParam long since,
+                                             @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return repo.changesSince(since, limit).onErrorMap(ChangeLog.TruncatedException.class, e ->
+                new ResponseStatusException(HttpStatus.GONE, "changes since " + since + " are no longer available"));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<byte[]>> get(@PathVariable long id) {
+        return repo.findById(id)
+                .map(p -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag(p.getVersion()))
+                        .body(productJson.json(p)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(params = "ids")
+    public Flux<Product> getAll(@RequestParam long[] ids) {
+        return findAllById(ids);
+    }
+
+    @GetMapping(params = {"ids", "limit"})
+    public Flux<Product> getAllPaged() {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids cannot be combined with limit");
+    }
+
+    @PostMapping("/lookup")
+    public Flux<Product> lookup(@RequestBody long[] ids) {
+        return findAllById(ids);
+    }
+
+    /** Creates a product; a retry carrying the same {@code Idempotency-Key} gets the product first created. */
+    @PostMapping
+    public Mono<ResponseEntity<Product>> create(@RequestBody Product p,
+                                                @RequestHeader(value = IdempotencyCache.HEADER, required = false)
+                                                String key) {
+        checkId(p);
+        return (key == null ? repo.save(p) : createOnce(key, p))
+                .map(saved -> ResponseEntity.created(URI.create("/api/products/" + saved.getId())).body(saved));
+    }
+
+    private Mono<Product> createOnce(String key, Product p) {
+        return Mono.defer(() -> {
+            IdempotencyCache.Claim claim = idempotency.claim(key, p);
+            CompletableFuture<Product> result = claim.result();
+            if (claim.owner()) {
+                // the save runs to the end even if this client goes away, since it commits all the same; retries
+                // wait for it, and only a failed save gives the key up
+                repo.save(p).toFuture().whenComplete((saved, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(saved);
+                    }
+                });
+                return Mono.fromFuture(result, true);
+            }
+            // a waiter that goes away must not cancel the first attempt's outcome for everyone else
+            return Mono.fromFuture(result, true).onErrorResume(e -> createOnce(key, p));
+        });
+    }
+
+    /**
+     * Bulk upsert of a JSON array, with the same per-item results as the servlet endpoint. Items are decoded as they
+     * arrive and saved in batches off the event loop.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<BulkItemResult>> bulk(@RequestBody Flux<JsonNode> items) {
+        BulkUpsert upsert = new BulkUpsert(blockingRepo, mapper);
+        return upload(items.publishOn(Schedulers.boundedElastic()).doOnNext(upsert::add), upsert);
+    }
+
+    /** Same as the JSON array upload, with one product per line; a malformed line only fails that item. */
+    @PostMapping(value = "/bulk", consumes = NDJSON)
+    public Mono<List<BulkItemResult>> bulkLines(@RequestBody Flux<String> lines) {
+        BulkUpsert upsert = new BulkUpsert(blockingRepo, mapper);
+        return upload(lines.publishOn(Schedulers.boundedElastic()).doOnNext(upsert::addLine), upsert);
+    }
+
+    @GetMapping("/{id}/stock")
+    public Mono<ResponseEntity<Stock>> stock(@PathVariable long id) {
+        return repo.stock(id).map(ResponseEntity::ok).defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}/stock")
+    public Mono<ResponseEntity<Stock>> setStock(@PathVariable long id, @RequestBody Stock stock) {
+        if (stock.getAvailable() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "available must not be negative");
+        }
+        return repo.setStock(id, stock.getAvailable()).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /** Reserves units as in {@link ProductController#reserve}: 409 when fewer are available, 404 for no product. */
+    @PostMapping("/{id}/reservations")
+    public Mono<ResponseEntity<Reservation>> reserve(@PathVariable long id, @RequestBody Reservation request) {
+        if (request.getQuantity() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be at least 1");
+        }
+        return repo.reserve(id, request.getQuantity())
+                .map(held -> ResponseEntity.created(URI.create("/api/products/reservations/" + held.getId()))
+                        .body(held))
+                .switchIfEmpty(repo.stock(id)
+                        .map(s -> new ResponseStatusException(HttpStatus.CONFLICT, "not enough stock"))
+                        .defaultIfEmpty(new ResponseStatusException(HttpStatus.NOT_FOUND))
+                        .flatMap(Mono::error));
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public Mono<ResponseEntity<Reservation>> commitReservation(@PathVariable long reservationId) {
+        return repo.commitReservation(reservationId).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/reservations/{reservationId}/release")
+    public Mono<ResponseEntity<Reservation>> releaseReservation(@PathVariable long reservationId) {
+        return repo.releaseReservation(reservationId).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    private static Mono<List<BulkItemResult>> upload(Flux<?> items, BulkUpsert upsert) {
+        return items
+                .onErrorResume(ServerWebInputException.class, e -> {
+                    // malformed JSON ends the upload; what was saved before it stays saved
+                    Throwable cause = e.getMostSpecificCause();
+                    upsert.fail(cause instanceof JsonProcessingException json
+                            ? json.getOriginalMessage()
+                            : cause.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.fromCallable(upsert::finish).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Flux<Product> findAllById(long[] ids) {
+        if (ids.length > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_PAGE_SIZE + " ids per request");
+        }
+        return repo.findAllById(ids);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.onlinestore.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the heap bytes each request allocates as {@code http.server.requests.allocation}, tagged like
+ * {@code http.server.requests} with method and URI pattern. It reads the JVM's per-thread allocation counter before
+ * and after the request, which costs about as much as reading the clock, so it can stay on in production. Only
+ * requests handled start to finish on one thread are measured: a change stream continues on other threads, and on a
+ * JVM without the counter (or on a virtual thread, where it is not kept) nothing is recorded. Each method and URI
+ * pattern's summary is registered once and kept, so a request only looks it up.
+ *
+ * <p>Servlet deployment only; on the event loop a request's work is interleaved with others' on the same thread.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class RequestAllocationFilter extends OncePerRequestFilter {
+    private final MeterRegistry registry;
+    private final com.sun.management.ThreadMXBean threads;
+    // keyed by method and URI pattern, separated by a space
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    RequestAllocationFilter(MeterRegistry registry) {
+        this.registry = registry;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean hotspot
+                && hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()
+                ? hotspot : null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (threads == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long after = threads.getCurrentThreadAllocatedBytes();
+            if (before >= 0 && after >= before && !request.isAsyncStarted()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                summary(request.getMethod(), pattern != null ? pattern.toString() : "UNKNOWN").record(after - before);
+            }
+        }
+    }
+
+    private DistributionSummary summary(String method, String uri) {
+        String key = method + ' ' + uri;
+        DistributionSummary summary = summaries.get(key);
+        if (summary == null) {
+            summary = summaries.computeIfAbsent(key, k -> DistributionSummary.builder("http.server.requests.allocation")
+                    .description("Heap bytes allocated by the thread that handled the request")
+                    .baseUnit("bytes")
+                    .tag("method", method)
+                    .tag("uri", uri)
+                    .register(registry));
+        }
+        return summary;
+    }
+}
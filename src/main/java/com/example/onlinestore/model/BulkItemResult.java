@@ -0,0 +1,65 @@
+package com.example.onlinestore.model;
+
+/** Outcome of one item of a bulk upsert, reported in input order. */
+public class BulkItemResult {
+    public enum Status { CREATED, UPDATED, FAILED }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private Long version;
+    private String error;
+
+    public BulkItemResult() {}
+
+    public BulkItemResult(int index, Status status, Long id, Long version, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.version = version;
+        this.error = error;
+    }
+
+    /** Position of the item in the request, counting from 0. */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /** Id of the saved product, or {@code null} if the item failed. */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /** Why the item was rejected, or {@code null} if it was saved. */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
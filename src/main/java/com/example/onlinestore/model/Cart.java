@@ -0,0 +1,57 @@
+package com.example.onlinestore.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A session's shopping cart, priced when it is read. Lines whose product has since been deleted are left out of
+ * {@link #getItems()} and listed in {@link #getUnavailable()}.
+ */
+public class Cart {
+    private String sessionId;
+    private List<CartItem> items;
+    private List<Long> unavailable;
+    private BigDecimal total;
+
+    public Cart() {}
+
+    public Cart(String sessionId, List<CartItem> items, List<Long> unavailable, BigDecimal total) {
+        this.sessionId = sessionId;
+        this.items = items;
+        this.unavailable = unavailable;
+        this.total = total;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CartItem> items) {
+        this.items = items;
+    }
+
+    /** Ids of products in the cart that no longer exist. */
+    public List<Long> getUnavailable() {
+        return unavailable;
+    }
+
+    public void setUnavailable(List<Long> unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
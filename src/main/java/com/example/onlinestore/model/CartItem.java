@@ -0,0 +1,62 @@
+package com.example.onlinestore.model;
+
+import java.math.BigDecimal;
+
+/** One line of a {@link Cart}: a product, how many of it, and what that costs at the product's current price. */
+public class CartItem {
+    private long productId;
+    private String name;
+    private double unitPrice;
+    private int quantity;
+    private BigDecimal lineTotal;
+
+    public CartItem() {}
+
+    public CartItem(long productId, String name, double unitPrice, int quantity, BigDecimal lineTotal) {
+        this.productId = productId;
+        this.name = name;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+        this.lineTotal = lineTotal;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(long productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(double unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getLineTotal() {
+        return lineTotal;
+    }
+
+    public void setLineTotal(BigDecimal lineTotal) {
+        this.lineTotal = lineTotal;
+    }
+}
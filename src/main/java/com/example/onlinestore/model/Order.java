@@ -0,0 +1,53 @@
+package com.example.onlinestore.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** A checked-out cart: its lines at the prices charged, whose units have been sold out of stock. */
+public class Order {
+    private long id;
+    private String sessionId;
+    private List<CartItem> items;
+    private BigDecimal total;
+
+    public Order() {}
+
+    public Order(long id, String sessionId, List<CartItem> items, BigDecimal total) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.items = items;
+        this.total = total;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CartItem> items) {
+        this.items = items;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+}
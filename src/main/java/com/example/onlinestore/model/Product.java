@@ -4,6 +4,7 @@ public class Product {
     private Long id;
     private String name;
     private double price;
+    private long version;
 
     public Product() {}
 
@@ -36,4 +37,13 @@ public class Product {
     public void setPrice(double price) {
         this.price = price;
     }
+
+    /** Assigned by the repository on every save; a product's version only ever grows. */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,85 @@
+package com.example.onlinestore.model;
+
+import java.util.List;
+
+/**
+ * Everything that changed after a sync position: products created or updated, and tombstones for deleted ids. A
+ * client applies the tombstones first and then the products, and asks again with {@link #getVersion()}.
+ */
+public class ProductChanges {
+    private long version;
+    private List<Product> products;
+    private List<Tombstone> deleted;
+    private boolean hasMore;
+
+    public ProductChanges() {}
+
+    public ProductChanges(long version, List<Product> products, List<Tombstone> deleted, boolean hasMore) {
+        this.version = version;
+        this.products = products;
+        this.deleted = deleted;
+        this.hasMore = hasMore;
+    }
+
+    /** Position to pass as {@code since} next time. */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<Product> products) {
+        this.products = products;
+    }
+
+    public List<Tombstone> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Tombstone> deleted) {
+        this.deleted = deleted;
+    }
+
+    /** Whether the limit cut this response short; if so, ask again right away. */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public static class Tombstone {
+        private long id;
+        private long version;
+
+        public Tombstone() {}
+
+        public Tombstone(long id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public void setVersion(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.onlinestore.model;
+
+import java.util.List;
+
+public class ProductPage {
+    private List<Product> items;
+    private String nextCursor;
+
+    public ProductPage() {}
+
+    public ProductPage(List<Product> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Product> items) {
+        this.items = items;
+    }
+
+    /** Opaque token for the next page, or {@code null} when this is the last page. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.onlinestore.model;
+
+/**
+ * Units of one product taken out of its available stock. A reservation starts {@code HELD} and ends exactly once:
+ * committed (the units are sold) or released (they become available again).
+ */
+public class Reservation {
+    public enum Status { HELD, COMMITTED, RELEASED }
+
+    private long id;
+    private long productId;
+    private int quantity;
+    private Status status;
+
+    public Reservation() {}
+
+    public Reservation(long id, long productId, int quantity, Status status) {
+        this.id = id;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.status = status;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+}
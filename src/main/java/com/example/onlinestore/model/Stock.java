@@ -0,0 +1,50 @@
+package com.example.onlinestore.model;
+
+/** Stock of one product: units that can still be reserved, units held by open reservations, and units sold. */
+public class Stock {
+    private long productId;
+    private long available;
+    private long reserved;
+    private long sold;
+
+    public Stock() {}
+
+    public Stock(long productId, long available, long reserved, long sold) {
+        this.productId = productId;
+        this.available = available;
+        this.reserved = reserved;
+        this.sold = sold;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(long productId) {
+        this.productId = productId;
+    }
+
+    public long getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(long available) {
+        this.available = available;
+    }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(long reserved) {
+        this.reserved = reserved;
+    }
+
+    public long getSold() {
+        return sold;
+    }
+
+    public void setSold(long sold) {
+        this.sold = sold;
+    }
+}
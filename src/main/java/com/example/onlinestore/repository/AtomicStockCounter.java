@@ -0,0 +1,38 @@
+package com.example.onlinestore.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stock count in one {@link AtomicLong}, taken with a compare-and-set loop. Exact and compact, but every buyer of
+ * the product updates the same cache line, so a very hot product scales no further than one core's CAS rate.
+ */
+final class AtomicStockCounter implements StockCounter {
+    private final AtomicLong available = new AtomicLong();
+
+    @Override
+    public boolean tryTake(int quantity) {
+        long current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    @Override
+    public void add(long quantity) {
+        available.addAndGet(quantity);
+    }
+
+    @Override
+    public void set(long available) {
+        this.available.set(available);
+    }
+
+    @Override
+    public long available() {
+        return available.get();
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.onlinestore.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Shopping carts by session id, in memory. A cart is a pair of small arrays of product ids and quantities guarded by
+ * the cart itself, so millions of carts cost little more than their lines. Carts that are neither read nor changed
+ * for {@code store.carts.idle-timeout} are dropped: every cart sits in a {@link TimerWheel} bucket for the moment it
+ * would go idle, and using a cart only records the time. When its bucket comes due a cart is either dropped or, if
+ * it was used meanwhile, put back for its new deadline, so expiry costs one bucket append per cart per idle period
+ * and no task per cart.
+ */
+@Component
+public class CartStore {
+    private static final Logger log = LoggerFactory.getLogger(CartStore.class);
+
+    /** A cart's lines in the order they were added. */
+    public record Contents(long[] productIds, int[] quantities) {}
+
+    /** Thrown when a cart would get more than {@link StoreProperties.Carts#getMaxLines()} different products. */
+    public static class FullException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FullException(int maxLines) {
+            super("a cart holds at most " + maxLines + " different products");
+        }
+    }
+
+    private static final class Cart {
+        final String session;
+        long[] productIds = new long[4];
+        int[] quantities = new int[4];
+        int lines;
+        volatile long lastUsed;
+        // set under the cart's lock when it is dropped; a writer that finds it set starts a new cart
+        boolean evicted;
+
+        Cart(String session, long now) {
+            this.session = session;
+            this.lastUsed = now;
+        }
+
+        Contents contents() {
+            return new Contents(Arrays.copyOf(productIds, lines), Arrays.copyOf(quantities, lines));
+        }
+    }
+
+    private final ConcurrentHashMap<String, Cart> carts = new ConcurrentHashMap<>();
+    private final TimerWheel<Cart> wheel;
+    private final long idleMillis;
+    private final int maxLines;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService expiry;
+
+    public CartStore() {
+        this(new StoreProperties());
+    }
+
+    @Autowired
+    public CartStore(StoreProperties properties) {
+        this(properties, System::currentTimeMillis, true);
+    }
+
+    CartStore(StoreProperties properties, LongSupplier clock, boolean scheduleExpiry) {
+        StoreProperties.Carts config = properties.getCarts();
+        this.idleMillis = config.getIdleTimeout().toMillis();
+        this.maxLines = config.getMaxLines();
+        this.clock = clock;
+        long tick = config.getExpiryTick().toMillis();
+        this.wheel = new TimerWheel<>(idleMillis, tick, clock.getAsLong());
+        if (scheduleExpiry) {
+            expiry = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cart-expiry");
+                t.setDaemon(true);
+                return t;
+            });
+            expiry.scheduleWithFixedDelay(this::scheduledExpiry, tick, tick, TimeUnit.MILLISECONDS);
+        } else {
+            expiry = null;
+        }
+    }
+
+    /** The session's cart, or {@code null} if it has none; reading a cart keeps it alive. */
+    public Contents get(String session) {
+        Cart cart = carts.get(session);
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            if (cart.evicted) {
+                return null;
+            }
+            cart.lastUsed = clock.getAsLong();
+            return cart.contents();
+        }
+    }
+
+    /**
+     * Sets how many of a product the session's cart holds, creating the cart if needed; 0 removes the line.
+     *
+     * @throws FullException if that would add a line to a full cart
+     */
+    public Contents setQuantity(String session, long productId, int quantity) {
+        while (true) {
+            Cart cart = carts.computeIfAbsent(session, this::newCart);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    // dropped between the lookup and the lock; it is no longer in the map
+                    continue;
+                }
+                cart.lastUsed = clock.getAsLong();
+                int line = indexOf(cart, productId);
+                if (quantity == 0) {
+                    if (line >= 0) {
+                        int tail = cart.lines - line - 1;
+                        System.arraycopy(cart.productIds, line + 1, cart.productIds, line, tail);
+                        System.arraycopy(cart.quantities, line + 1, cart.quantities, line, tail);
+                        cart.lines--;
+                    }
+                } else if (line >= 0) {
+                    cart.quantities[line] = quantity;
+                } else {
+                    if (cart.lines == maxLines) {
+                        throw new FullException(maxLines);
+                    }
+                    append(cart, productId, quantity);
+                }
+                return cart.contents();
+            }
+        }
+    }
+
+    /** Drops the session's cart; returns whether there was one. */
+    public boolean remove(String session) {
+        Cart cart = carts.remove(session);
+        if (cart == null) {
+            return false;
+        }
+        synchronized (cart) {
+            cart.evicted = true;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the session's cart out of the store, atomically: of concurrent callers, at most one gets its contents,
+     * and changes made afterwards go to a new cart. Returns {@code null} if the session has no cart.
+     */
+    public Contents detach(String session) {
+        Cart cart = carts.remove(session);
+        if (cart == null) {
+            return null;
+        }
+        synchronized (cart) {
+            if (cart.evicted) {
+                return null;
+            }
+            cart.evicted = true;
+            return cart.contents();
+        }
+    }
+
+    /**
+     * Puts detached contents back into the session's cart. Lines for products the cart has gained meanwhile keep the
+     * newer quantity, and lines that no longer fit in it are dropped.
+     */
+    public void restore(String session, Contents contents) {
+        while (true) {
+            Cart cart = carts.computeIfAbsent(session, this::newCart);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                cart.lastUsed = clock.getAsLong();
+                long[] productIds = contents.productIds();
+                for (int i = 0; i < productIds.length && cart.lines < maxLines; i++) {
+                    if (indexOf(cart, productIds[i]) < 0) {
+                        append(cart, productIds[i], contents.quantities()[i]);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    /** Drops the carts that have gone idle by now; normally run every tick by the store's own thread. */
+    void expire() {
+        long now = clock.getAsLong();
+        wheel.advance(now, cart -> {
+            synchronized (cart) {
+                if (cart.evicted) {
+                    return;
+                }
+                long deadline = cart.lastUsed + idleMillis;
+                if (deadline > now) {
+                    wheel.schedule(cart, deadline);
+                    return;
+                }
+                cart.evicted = true;
+            }
+            carts.remove(cart.session, cart);
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (expiry != null) {
+            expiry.shutdownNow();
+        }
+    }
+
+    private Cart newCart(String session) {
+        long now = clock.getAsLong();
+        Cart cart = new Cart(session, now);
+        wheel.schedule(cart, now + idleMillis);
+        return cart;
+    }
+
+    private void append(Cart cart, long productId, int quantity) {
+        if (cart.lines == cart.productIds.length) {
+            int grown = Math.min(maxLines, cart.lines * 2);
+            cart.productIds = Arrays.copyOf(cart.productIds, grown);
+            cart.quantities = Arrays.copyOf(cart.quantities, grown);
+        }
+        cart.productIds[cart.lines] = productId;
+        cart.quantities[cart.lines] = quantity;
+        cart.lines++;
+    }
+
+    private static int indexOf(Cart cart, long productId) {
+        for (int i = 0; i < cart.lines; i++) {
+            if (cart.productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void scheduledExpiry() {
+        try {
+            expire();
+        } catch (Exception e) {
+            // keep the schedule alive
+            log.warn("cart expiry failed", e);
+        }
+    }
+}
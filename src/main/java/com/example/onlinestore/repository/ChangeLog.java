@@ -0,0 +1,117 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent writes to the store, in order, for consumers that follow the catalog by deltas. A change's sequence
+ * number is the version the write gave the product (or, for a delete, recorded in the log), so sequence numbers are
+ * dense and, per product, in write order.
+ *
+ * <p>Changes live in a ring of immutable entries indexed by sequence number. Writers publish with a compare-and-set
+ * on their slot and never wait; an entry that arrives after a later lap has taken its slot is dropped, like any other
+ * overwritten one. Readers walk forward from a position and stop at the first slot that is not yet published, so they
+ * never skip a change that is still being written. Nobody blocks: a reader that has caught up gets nothing and asks
+ * again once it hears of a new write.
+ */
+public class ChangeLog {
+
+    public enum Op { SAVED, DELETED }
+
+    /** One write; {@code product} is a copy taken at write time, or {@code null} for a delete. */
+    public record Change(long seq, Op op, long id, Product product) {}
+
+    /** Thrown when a reader asks for changes that the ring no longer (or never did) hold. */
+    public static class TruncatedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TruncatedException(long from) {
+            super("changes from " + from + " are not available");
+        }
+    }
+
+    private final AtomicReferenceArray<Change> slots;
+    private final int mask;
+    // sequence number of the first change this log could hold; earlier ones predate it
+    private final long firstSeq;
+    // every change up to here is published; advanced lazily by publishedThrough
+    private final AtomicLong watermark;
+
+    ChangeLog(int capacity, long firstSeq) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.firstSeq = firstSeq;
+        this.watermark = new AtomicLong(firstSeq - 1);
+    }
+
+    void append(Change change) {
+        int i = (int) change.seq() & mask;
+        Change current;
+        do {
+            current = slots.get(i);
+            if (current != null && current.seq() > change.seq()) {
+                return;
+            }
+        } while (!slots.compareAndSet(i, current, change));
+    }
+
+    /**
+     * Up to {@code max} consecutive changes starting at sequence number {@code from}, as far as they are published.
+     *
+     * @return the changes, or an empty list if the one at {@code from} is not published yet
+     * @throws TruncatedException if the change at {@code from} has been overwritten or predates this log
+     */
+    List<Change> read(long from, int max) {
+        if (from < firstSeq) {
+            throw new TruncatedException(from);
+        }
+        List<Change> batch = new ArrayList<>();
+        for (long seq = from; batch.size() < max; seq++) {
+            Change c = slots.get((int) seq & mask);
+            if (c == null || c.seq() < seq) {
+                break;
+            }
+            if (c.seq() > seq) {
+                if (batch.isEmpty()) {
+                    throw new TruncatedException(from);
+                }
+                break;
+            }
+            batch.add(c);
+        }
+        return batch;
+    }
+
+    /**
+     * The highest sequence number up to which every change is published, given that none beyond {@code head} has been
+     * handed out yet. Writes that are still in flight hold it back, so whatever a write does before it publishes is
+     * complete for every sequence number at or below the result. The walk resumes where the last call stopped; a slot
+     * that a later lap has already taken counts as published.
+     */
+    long publishedThrough(long head) {
+        long seq = Math.max(watermark.get(), head - slots.length());
+        while (seq < head) {
+            Change c = slots.get((int) (seq + 1) & mask);
+            if (c == null || c.seq() < seq + 1) {
+                break;
+            }
+            seq++;
+        }
+        return watermark.accumulateAndGet(seq, Math::max);
+    }
+
+    static Change saved(Product p) {
+        Product copy = new Product(p.getId(), p.getName(), p.getPrice());
+        copy.setVersion(p.getVersion());
+        return new Change(p.getVersion(), Op.SAVED, p.getId(), copy);
+    }
+
+    static Change deleted(long id, long version) {
+        return new Change(version, Op.DELETED, id, null);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.onlinestore.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent open-addressing map from primitive {@code long} keys to objects, avoiding the boxing, {@code Long}
+ * hashing and per-entry node that {@code ConcurrentHashMap<Long, V>} costs on every lookup.
+ *
+ * <p>Reads take no locks: they probe a plain {@code long[]} of keys and read values with acquire semantics. Writes
+ * lock one of a fixed set of stripes chosen by key, so writes to the same key are serialized, and claim free slots
+ * with a CAS so that writers on different stripes never share a slot. A slot's key is written before its value is
+ * published and never changes afterwards; removal leaves a tombstone in the value, and tombstones are only dropped
+ * when the table is rebuilt. Rebuilding locks every stripe, while readers keep using the old table until the new one
+ * is published.
+ */
+public class ConcurrentLongHashMap<V> {
+    private static final int STRIPES = 64;
+    // leaves room for every stripe to claim a slot after the resize check without filling the table
+    private static final int MIN_CAPACITY = 512;
+    private static final Object CLAIMED = new Object();
+    private static final Object TOMBSTONE = new Object();
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+        final int resizeAt;
+        // slots holding a key, including tombstones
+        final AtomicInteger used = new AtomicInteger();
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            resizeAt = capacity / 4 * 3;
+        }
+    }
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile Table table;
+
+    public ConcurrentLongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public ConcurrentLongHashMap(int expectedSize) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        table = new Table(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table t = table;
+        for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+            Object v = VALUES.getAcquire(t.values, i);
+            if (v == null) {
+                return null;
+            }
+            if (v != CLAIMED && t.keys[i] == key) {
+                return v == TOMBSTONE ? null : (V) v;
+            }
+        }
+    }
+
+    /** Maps {@code key} to {@code value} and returns the previous value, or {@code null}. */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int h = hash(key);
+        ReentrantLock stripe = stripes[h >>> 26];
+        while (true) {
+            Table t = table;
+            stripe.lock();
+            try {
+                if (t != table) {
+                    continue;
+                }
+                int i = h & t.mask;
+                while (true) {
+                    Object v = VALUES.getAcquire(t.values, i);
+                    if (v == null) {
+                        if (t.used.get() >= t.resizeAt) {
+                            break;
+                        }
+                        if (!VALUES.compareAndSet(t.values, i, null, CLAIMED)) {
+                            // another stripe took this slot; look at it again
+                            continue;
+                        }
+                        t.used.incrementAndGet();
+                        t.keys[i] = key;
+                        VALUES.setRelease(t.values, i, value);
+                        size.incrementAndGet();
+                        return null;
+                    }
+                    if (v != CLAIMED && t.keys[i] == key) {
+                        VALUES.setRelease(t.values, i, value);
+                        if (v == TOMBSTONE) {
+                            size.incrementAndGet();
+                            return null;
+                        }
+                        return (V) v;
+                    }
+                    i = (i + 1) & t.mask;
+                }
+            } finally {
+                stripe.unlock();
+            }
+            resize(t);
+        }
+    }
+
+    /** Removes the mapping for {@code key} and returns its value, or {@code null} if there was none. */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int h = hash(key);
+        ReentrantLock stripe = stripes[h >>> 26];
+        while (true) {
+            Table t = table;
+            stripe.lock();
+            try {
+                if (t != table) {
+                    continue;
+                }
+                for (int i = h & t.mask; ; i = (i + 1) & t.mask) {
+                    Object v = VALUES.getAcquire(t.values, i);
+                    if (v == null) {
+                        return null;
+                    }
+                    if (v != CLAIMED && t.keys[i] == key) {
+                        if (v == TOMBSTONE) {
+                            return null;
+                        }
+                        VALUES.setRelease(t.values, i, TOMBSTONE);
+                        size.decrementAndGet();
+                        return (V) v;
+                    }
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /** Rebuilds {@code full} into a table sized for the live entries, unless another writer already did. */
+    private void resize(Table full) {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            if (table != full) {
+                return;
+            }
+            // with every stripe held no slot is mid-claim, so each non-null value is either live or a tombstone
+            Table rebuilt = new Table(capacityFor(size.get() + 1));
+            for (int j = 0; j <= full.mask; j++) {
+                Object v = full.values[j];
+                if (v != null && v != TOMBSTONE) {
+                    long key = full.keys[j];
+                    int i = hash(key) & rebuilt.mask;
+                    while (rebuilt.values[i] != null) {
+                        i = (i + 1) & rebuilt.mask;
+                    }
+                    rebuilt.keys[i] = key;
+                    rebuilt.values[i] = v;
+                    rebuilt.used.incrementAndGet();
+                }
+            }
+            table = rebuilt;
+        } finally {
+            for (ReentrantLock stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /** Power of two at which {@code entries} fill at most half of the table. */
+    private static int capacityFor(int entries) {
+        long wanted = Math.max(MIN_CAPACITY, (long) entries * 2);
+        if (wanted > 1 << 30) {
+            throw new IllegalStateException("too many entries: " + entries);
+        }
+        return Integer.highestOneBit((int) wanted - 1) << 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
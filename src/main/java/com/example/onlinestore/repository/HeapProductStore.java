@@ -0,0 +1,88 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * {@link ProductStore} holding the product objects themselves. Point lookups go through a primitive-keyed hash index;
+ * scans and cursor pages walk an {@link OrderedIdSet} of the same ids and look each product up, so no id is boxed or
+ * given a node of its own.
+ */
+public class HeapProductStore implements ProductStore {
+    private final ConcurrentLongHashMap<Product> byId = new ConcurrentLongHashMap<>();
+    private final OrderedIdSet ids = new OrderedIdSet();
+
+    @Override
+    public Product get(long id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public Product put(Product p) {
+        // indexed for scans only once it can be found
+        Product previous = byId.put(p.getId(), p);
+        if (previous == null) {
+            ids.add(p.getId());
+        }
+        return previous;
+    }
+
+    @Override
+    public Product remove(long id) {
+        Product removed = byId.remove(id);
+        if (removed != null) {
+            ids.remove(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public Iterable<Product> values() {
+        return () -> new Scan(ids.iteratorFrom(Long.MIN_VALUE));
+    }
+
+    @Override
+    public Iterable<Product> valuesAfter(long id) {
+        if (id == Long.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+        return () -> new Scan(ids.iteratorFrom(id + 1));
+    }
+
+    /** Products in id order; an id whose product has been removed since its bit was read is skipped. */
+    private final class Scan implements Iterator<Product> {
+        private final PrimitiveIterator.OfLong idIterator;
+        private Product next;
+
+        Scan(PrimitiveIterator.OfLong idIterator) {
+            this.idIterator = idIterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && idIterator.hasNext()) {
+                next = byId.get(idIterator.nextLong());
+            }
+            return next != null;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Product p = next;
+            next = null;
+            return p;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock levels and open reservations, kept beside the product store. A reservation takes units from the product's
+ * {@link StockCounter} with a compare-and-set, so concurrent buyers of one SKU never lock, never wait for each other
+ * beyond a retried CAS, and can never take more than is there; once a product is sold out, further attempts only read.
+ * The counter is a single CAS count, or in {@link InventoryMode#SHARDED} mode one that spreads a hot product over
+ * shards picked per thread (see {@link ShardedStockCounter}). Units held and sold are tallied in {@link LongAdder}s,
+ * which do not contend on a hot product.
+ *
+ * <p>An open reservation is an entry in a primitive map. Committing or releasing removes it, and the map's removal
+ * returns the entry to exactly one caller, so a reservation ends once even when both race. Counts are kept in memory
+ * only; they are not written to the write-ahead log.
+ */
+class Inventory {
+    // reservation ids are handed to each thread in blocks, so that buyers do not all increment one counter
+    private static final int ID_BLOCK = 1024;
+
+    private static final class Level {
+        final StockCounter available;
+        final LongAdder reserved = new LongAdder();
+        final LongAdder sold = new LongAdder();
+
+        Level(StockCounter available) {
+            this.available = available;
+        }
+    }
+
+    private record Hold(long productId, int quantity, Level level) {}
+
+    private final ConcurrentLongHashMap<Level> levels = new ConcurrentLongHashMap<>();
+    private final ConcurrentLongHashMap<Hold> holds = new ConcurrentLongHashMap<>();
+    private final AtomicLong holdIds = new AtomicLong();
+    // next id and end of the calling thread's block
+    private final ThreadLocal<long[]> idBlocks = ThreadLocal.withInitial(() -> new long[2]);
+    private final InventoryMode mode;
+    private final int shards;
+
+    Inventory(StoreProperties.Inventory properties) {
+        this.mode = properties.getMode();
+        this.shards = properties.getShards();
+    }
+
+    /** Stock of {@code productId}, all zero if it was never set. */
+    Stock stock(long productId) {
+        Level level = levels.get(productId);
+        return level == null
+                ? new Stock(productId, 0, 0, 0)
+                : new Stock(productId, level.available.available(), level.reserved.sum(), level.sold.sum());
+    }
+
+    /** Sets the units available for reservation; callers serialize calls for the same product. */
+    void setAvailable(long productId, long available) {
+        Level level = levels.get(productId);
+        if (level == null) {
+            level = new Level(newCounter());
+            levels.put(productId, level);
+        }
+        level.available.set(available);
+    }
+
+    private StockCounter newCounter() {
+        return mode == InventoryMode.SHARDED ? new ShardedStockCounter(shards) : new AtomicStockCounter();
+    }
+
+    /** Forgets the product's stock; reservations still open on it can be committed or released as usual. */
+    void remove(long productId) {
+        levels.remove(productId);
+    }
+
+    /** Takes {@code quantity} units if that many are available; {@code null} if not. */
+    Reservation reserve(long productId, int quantity) {
+        Level level = levels.get(productId);
+        if (level == null || !level.available.tryTake(quantity)) {
+            return null;
+        }
+        level.reserved.add(quantity);
+        long id = nextHoldId();
+        holds.put(id, new Hold(productId, quantity, level));
+        return new Reservation(id, productId, quantity, Reservation.Status.HELD);
+    }
+
+    private long nextHoldId() {
+        long[] block = idBlocks.get();
+        if (block[0] == block[1]) {
+            block[0] = holdIds.getAndAdd(ID_BLOCK) + 1;
+            block[1] = block[0] + ID_BLOCK;
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Sells {@code quantities[i]} units of each {@code productIds[i]}, all or none. Every line is checked before any
+     * units are taken, so an order that is short is refused without touching the counters; only a reservation that
+     * takes the last units of a product between the check and the take makes the units already taken for the earlier
+     * lines go back. Returns the index of the short line, or -1 if all were sold.
+     */
+    int sell(long[] productIds, int[] quantities) {
+        Level[] lines = new Level[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            Level level = levels.get(productIds[i]);
+            if (level == null || level.available.available() < quantities[i]) {
+                return i;
+            }
+            lines[i] = level;
+        }
+        for (int i = 0; i < lines.length; i++) {
+            if (!lines[i].available.tryTake(quantities[i])) {
+                for (int j = 0; j < i; j++) {
+                    lines[j].available.add(quantities[j]);
+                }
+                return i;
+            }
+        }
+        for (int i = 0; i < lines.length; i++) {
+            lines[i].sold.add(quantities[i]);
+        }
+        return -1;
+    }
+
+    /** Ends an open reservation by selling its units; {@code null} if it is unknown or already ended. */
+    Reservation commit(long reservationId) {
+        Hold hold = holds.remove(reservationId);
+        if (hold == null) {
+            return null;
+        }
+        hold.level().reserved.add(-hold.quantity());
+        hold.level().sold.add(hold.quantity());
+        return new Reservation(reservationId, hold.productId(), hold.quantity(), Reservation.Status.COMMITTED);
+    }
+
+    /** Ends an open reservation by returning its units; {@code null} if it is unknown or already ended. */
+    Reservation release(long reservationId) {
+        Hold hold = holds.remove(reservationId);
+        if (hold == null) {
+            return null;
+        }
+        hold.level().reserved.add(-hold.quantity());
+        hold.level().available.add(hold.quantity());
+        return new Reservation(reservationId, hold.productId(), hold.quantity(), Reservation.Status.RELEASED);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.onlinestore.repository;
+
+/** How {@link Inventory} counts the units of a product that are available for reservation. */
+public enum InventoryMode {
+    /** One compare-and-set counter per product; see {@link AtomicStockCounter}. */
+    ATOMIC,
+    /** A counter that splits into per-core shards once it is contended; see {@link ShardedStockCounter}. */
+    SHARDED
+}
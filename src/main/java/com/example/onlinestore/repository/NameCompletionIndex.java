@@ -0,0 +1,385 @@
+package com.example.onlinestore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prefix index for autocompleting product names. Every name is inserted into a path-compressed trie once per word,
+ * under the lower-cased text from that word to the end, so both "gre" and "tea" complete "Green Tea". Each node
+ * caches the best {@value #MAX_COMPLETIONS} names below it, so a lookup walks down the prefix and never visits the
+ * subtree. Names shared by several products rank first, then shorter names, then alphabetical order.
+ *
+ * <p>Keys are spread over {@value #SHARDS} tries by their first character. A write locks the name it changes (one of
+ * {@value #NAME_LOCKS} stripes, so a name's count and the lists that show it change in step) and then each affected
+ * trie in turn, touching only the nodes on the affected paths; writes of different names to different tries run in
+ * parallel. Readers take no locks: nodes that change shape are replaced rather than modified, and child tables and
+ * cached lists are immutable arrays published through volatile fields.
+ */
+class NameCompletionIndex {
+    static final int MAX_COMPLETIONS = 10;
+    // longer keys cost memory without making completions more selective
+    private static final int MAX_KEY_LENGTH = 48;
+    private static final int SHARDS = 16;
+    private static final int NAME_LOCKS = 64;
+    private static final Completion[] NONE = new Completion[0];
+    private static final Comparator<Completion> ORDER = (a, b) -> a.rank != b.rank
+            ? Long.compare(a.rank, b.rank)
+            : a.name.compareTo(b.name);
+
+    private static final class Completion {
+        final String name;
+        final int count;
+        // count descending, then length: most comparisons are settled without touching the string
+        final long rank;
+
+        Completion(String name, int count) {
+            this.name = name;
+            this.count = count;
+            this.rank = (long) (Integer.MAX_VALUE - count) << 32 | name.length();
+        }
+    }
+
+    /** Child nodes sorted by the first character of their label. */
+    private record Children(char[] firsts, Node[] nodes) {
+        static final Children EMPTY = new Children(new char[0], new Node[0]);
+
+        Node get(char c) {
+            int i = Arrays.binarySearch(firsts, c);
+            return i >= 0 ? nodes[i] : null;
+        }
+
+        Children with(Node node) {
+            char c = node.label.charAt(0);
+            int i = Arrays.binarySearch(firsts, c);
+            if (i >= 0) {
+                Node[] replaced = nodes.clone();
+                replaced[i] = node;
+                return new Children(firsts, replaced);
+            }
+            int at = -i - 1;
+            char[] f = new char[firsts.length + 1];
+            Node[] n = new Node[nodes.length + 1];
+            System.arraycopy(firsts, 0, f, 0, at);
+            System.arraycopy(nodes, 0, n, 0, at);
+            System.arraycopy(firsts, at, f, at + 1, firsts.length - at);
+            System.arraycopy(nodes, at, n, at + 1, nodes.length - at);
+            f[at] = c;
+            n[at] = node;
+            return new Children(f, n);
+        }
+
+        Children without(char c) {
+            int at = Arrays.binarySearch(firsts, c);
+            char[] f = new char[firsts.length - 1];
+            Node[] n = new Node[nodes.length - 1];
+            System.arraycopy(firsts, 0, f, 0, at);
+            System.arraycopy(nodes, 0, n, 0, at);
+            System.arraycopy(firsts, at + 1, f, at, f.length - at);
+            System.arraycopy(nodes, at + 1, n, at, n.length - at);
+            return new Children(f, n);
+        }
+    }
+
+    private static final class Node {
+        // the edge from the parent; empty only for the root
+        final String label;
+        volatile Children children = Children.EMPTY;
+        volatile Completion[] top = NONE;
+        // names whose key ends here, unordered; only touched by writers
+        Completion[] terminals = NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /** A node with the same contents under a different edge label. */
+        Node relabel(String newLabel) {
+            Node node = new Node(newLabel);
+            node.children = children;
+            node.top = top;
+            node.terminals = terminals;
+            return node;
+        }
+    }
+
+    // each root also guards its trie's writes
+    private final Node[] roots = new Node[SHARDS];
+    private final Object[] nameLocks = new Object[NAME_LOCKS];
+    private final ConcurrentLongHashMap<String> namesById = new ConcurrentLongHashMap<>();
+    // current count per name, changed under the name's lock; its name instances are canonical, so lists compare names
+    // by identity
+    private final ConcurrentHashMap<String, Completion> completions = new ConcurrentHashMap<>();
+
+    NameCompletionIndex() {
+        for (int i = 0; i < SHARDS; i++) {
+            roots[i] = new Node("");
+        }
+        for (int i = 0; i < NAME_LOCKS; i++) {
+            nameLocks[i] = new Object();
+        }
+    }
+
+    /** Callers serialize calls for the same id. */
+    void put(long id, String name) {
+        String current = name == null ? "" : name;
+        String previous = namesById.put(id, current);
+        if (current.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            decrement(previous);
+        }
+        increment(current);
+    }
+
+    void remove(long id) {
+        String previous = namesById.remove(id);
+        if (previous != null) {
+            decrement(previous);
+        }
+    }
+
+    /** Up to {@code limit} (at most {@value #MAX_COMPLETIONS}) names with a word starting with {@code prefix}. */
+    List<String> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            Completion[] top = NONE;
+            for (Node root : roots) {
+                for (Completion c : root.top) {
+                    top = ranked(top, c);
+                }
+            }
+            return names(top, limit);
+        }
+        Node node = rootFor(key);
+        for (int i = 0; i < key.length(); ) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.label, key, i);
+            // the prefix may end inside an edge, but must not leave it
+            if (common < child.label.length() && i + common < key.length()) {
+                return List.of();
+            }
+            node = child;
+            i += common;
+        }
+        return names(node.top, limit);
+    }
+
+    private static List<String> names(Completion[] top, int limit) {
+        List<String> names = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && names.size() < limit; i++) {
+            names.add(top[i].name);
+        }
+        return names;
+    }
+
+    private Node rootFor(String key) {
+        return roots[key.charAt(0) & (SHARDS - 1)];
+    }
+
+    private Object nameLock(String name) {
+        return nameLocks[(name.hashCode() * 0x9E3779B9 >>> 16) & (NAME_LOCKS - 1)];
+    }
+
+    private void increment(String name) {
+        if (name.isBlank()) {
+            return;
+        }
+        synchronized (nameLock(name)) {
+            Completion completion = completions.merge(name, new Completion(name, 1),
+                    (old, one) -> new Completion(old.name, old.count + 1));
+            for (String key : keys(name)) {
+                Node root = rootFor(key);
+                synchronized (root) {
+                    insert(root, key, completion);
+                }
+            }
+        }
+    }
+
+    private static void insert(Node root, String key, Completion completion) {
+        Node node = root;
+        node.top = ranked(node.top, completion);
+        for (int i = 0; i < key.length(); ) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(key.substring(i));
+                leaf.terminals = new Completion[] {completion};
+                leaf.top = leaf.terminals;
+                node.children = node.children.with(leaf);
+                return;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // split the edge where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                middle.children = Children.EMPTY.with(child.relabel(child.label.substring(common)));
+                middle.top = child.top;
+                node.children = node.children.with(middle);
+                child = middle;
+            }
+            child.top = ranked(child.top, completion);
+            node = child;
+            i += common;
+        }
+        node.terminals = withTerminal(node.terminals, completion);
+    }
+
+    private void decrement(String name) {
+        if (name.isBlank()) {
+            return;
+        }
+        synchronized (nameLock(name)) {
+            Completion old = completions.get(name);
+            Completion completion = old.count == 1 ? null : new Completion(old.name, old.count - 1);
+            if (completion == null) {
+                completions.remove(name);
+            } else {
+                completions.put(name, completion);
+            }
+            for (String key : keys(old.name)) {
+                Node root = rootFor(key);
+                synchronized (root) {
+                    remove(root, key, old.name, completion);
+                }
+            }
+        }
+    }
+
+    /** Takes {@code canonical} out of the lists on {@code key}'s path, or lowers it to {@code completion}. */
+    private static void remove(Node root, String key, String canonical, Completion completion) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        for (int i = 0; i < key.length(); ) {
+            Node child = path.get(path.size() - 1).children.get(key.charAt(i));
+            path.add(child);
+            i += child.label.length();
+        }
+        Node end = path.get(path.size() - 1);
+        end.terminals = completion == null
+                ? without(end.terminals, canonical)
+                : withTerminal(end.terminals, completion);
+        // bottom-up, so that each node is corrected from already corrected children
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node node = path.get(depth);
+            Node parent = depth > 0 ? path.get(depth - 1) : null;
+            Children children = node.children;
+            if (parent != null && node.terminals.length == 0 && children.nodes().length == 0) {
+                parent.children = parent.children.without(node.label.charAt(0));
+            } else if (parent != null && node.terminals.length == 0 && children.nodes().length == 1) {
+                // keep the trie compressed: fold the only child into this edge
+                Node only = children.nodes()[0];
+                parent.children = parent.children.with(only.relabel(node.label + only.label));
+            } else {
+                Completion[] top = node.top;
+                int at = indexOf(top, canonical);
+                if (at >= 0 && top.length < MAX_COMPLETIONS) {
+                    // a list that is not full holds every name below the node, so nothing can move up into it
+                    Completion[] rest = without(top, canonical);
+                    node.top = completion == null ? rest : insert(rest, completion);
+                } else if (at >= 0) {
+                    rebuild(node);
+                }
+            }
+        }
+    }
+
+    private static void rebuild(Node node) {
+        Completion[] top = NONE;
+        for (Completion c : node.terminals) {
+            top = ranked(top, c);
+        }
+        for (Node child : node.children.nodes()) {
+            for (Completion c : child.top) {
+                top = ranked(top, c);
+            }
+        }
+        node.top = top;
+    }
+
+    /**
+     * {@code top} with {@code completion} added, or replacing the entry with the same name, if it ranks among the
+     * best. Most candidates are rejected after a single comparison.
+     */
+    private static Completion[] ranked(Completion[] top, Completion completion) {
+        int at = indexOf(top, completion.name);
+        if (at < 0 && top.length == MAX_COMPLETIONS && ORDER.compare(completion, top[top.length - 1]) > 0) {
+            return top;
+        }
+        return insert(at < 0 ? top : without(top, completion.name), completion);
+    }
+
+    /** Copy of the sorted {@code top} with {@code completion}, which it does not hold, in place; capped in size. */
+    private static Completion[] insert(Completion[] top, Completion completion) {
+        int at = -Arrays.binarySearch(top, completion, ORDER) - 1;
+        if (at >= MAX_COMPLETIONS) {
+            return top;
+        }
+        Completion[] result = new Completion[Math.min(MAX_COMPLETIONS, top.length + 1)];
+        System.arraycopy(top, 0, result, 0, at);
+        result[at] = completion;
+        System.arraycopy(top, at, result, at + 1, result.length - at - 1);
+        return result;
+    }
+
+    private static Completion[] withTerminal(Completion[] terminals, Completion completion) {
+        int at = indexOf(terminals, completion.name);
+        Completion[] result = Arrays.copyOf(terminals, at >= 0 ? terminals.length : terminals.length + 1);
+        result[at >= 0 ? at : terminals.length] = completion;
+        return result;
+    }
+
+    private static Completion[] without(Completion[] completions, String name) {
+        List<Completion> kept = new ArrayList<>(completions.length);
+        for (Completion c : completions) {
+            if (c.name != name) {
+                kept.add(c);
+            }
+        }
+        return kept.toArray(NONE);
+    }
+
+    private static int indexOf(Completion[] completions, String name) {
+        for (int i = 0; i < completions.length; i++) {
+            if (completions[i].name == name) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int n = 0;
+        while (n < label.length() && from + n < key.length() && label.charAt(n) == key.charAt(from + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    /** The name from the start of each word to its end, normalized and capped. */
+    private static Set<String> keys(String name) {
+        String normalized = name.strip().toLowerCase(Locale.ROOT);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(normalized.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(normalized.charAt(i))) {
+                keys.add(normalized.substring(i, Math.min(normalized.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String prefix) {
+        String lower = prefix.strip().toLowerCase(Locale.ROOT);
+        return lower.length() > MAX_KEY_LENGTH ? lower.substring(0, MAX_KEY_LENGTH) : lower;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.onlinestore.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inverted index over product names for relevance-ranked search. Each term maps to a compressed {@link PostingList}
+ * of ids, and the tokens indexed for each id are remembered so that renames and deletes touch only the terms that
+ * actually change. Results are ranked with BM25 (every term counts once per name), so rare terms and short names
+ * score higher; the cost of a query is proportional to the postings of its terms, not to the catalog.
+ *
+ * <p>Callers keep the index in step with the store under the repository's per-id write lock; posting list writes
+ * for one term are serialized by the term map.
+ */
+class NameIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final ConcurrentHashMap<String, PostingList> terms = new ConcurrentHashMap<>();
+    private final ConcurrentLongHashMap<String[]> tokensById = new ConcurrentLongHashMap<>();
+    private final AtomicLong totalTokens = new AtomicLong();
+
+    /**
+     * Splits text into distinct lower-case terms: runs of letters and digits, except that ideographs (which are
+     * written without spaces) each form a term of their own.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return NO_TOKENS;
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isIdeographic(cp)) {
+                addToken(tokens, current);
+                current.appendCodePoint(cp);
+                addToken(tokens, current);
+            } else if (Character.isLetterOrDigit(cp)) {
+                current.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                addToken(tokens, current);
+            }
+        }
+        addToken(tokens, current);
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    void put(long id, String name) {
+        String[] tokens = tokenize(name);
+        String[] previous = tokensById.put(id, tokens);
+        // postings carry the name's token count, so a change in length re-posts every term
+        boolean lengthChanged = previous != null && previous.length != tokens.length;
+        if (previous != null) {
+            for (String term : previous) {
+                if (lengthChanged || !contains(tokens, term)) {
+                    removePosting(term, id);
+                }
+            }
+            totalTokens.addAndGet(-previous.length);
+        }
+        for (String term : tokens) {
+            if (previous == null || lengthChanged || !contains(previous, term)) {
+                terms.compute(term, (t, postings) -> {
+                    PostingList list = postings == null ? new PostingList() : postings;
+                    list.add(id, tokens.length);
+                    return list;
+                });
+            }
+        }
+        totalTokens.addAndGet(tokens.length);
+    }
+
+    void remove(long id) {
+        String[] previous = tokensById.remove(id);
+        if (previous != null) {
+            for (String term : previous) {
+                removePosting(term, id);
+            }
+            totalTokens.addAndGet(-previous.length);
+        }
+    }
+
+    /**
+     * Ids of the {@code limit} best matches for any term of {@code query}, best first. The posting lists of the query
+     * terms are merged in id order, so each matching id is scored exactly once without a hash lookup.
+     */
+    long[] search(String query, int limit) {
+        int docs = tokensById.size();
+        String[] queryTerms = tokenize(query);
+        PostingList.Cursor[] cursors = new PostingList.Cursor[queryTerms.length];
+        double[] weights = new double[queryTerms.length];
+        int n = 0;
+        for (String term : queryTerms) {
+            PostingList postings = terms.get(term);
+            if (postings != null) {
+                int df = postings.size();
+                weights[n] = Math.log(1 + (docs - df + 0.5) / (df + 0.5)) * (K1 + 1);
+                cursors[n] = postings.cursor();
+                n = cursors[n].next() ? n + 1 : n;
+            }
+        }
+        double averageLength = Math.max(1.0, (double) totalTokens.get() / Math.max(1, docs));
+        TopK top = new TopK(limit);
+        while (n > 0) {
+            long id = cursors[0].id();
+            for (int i = 1; i < n; i++) {
+                id = Math.min(id, cursors[i].id());
+            }
+            double score = 0;
+            for (int i = 0; i < n; ) {
+                PostingList.Cursor c = cursors[i];
+                if (c.id() != id) {
+                    i++;
+                    continue;
+                }
+                score += weights[i] / (1 + K1 * (1 - B + B * c.length() / averageLength));
+                if (c.next()) {
+                    i++;
+                } else {
+                    // drop the exhausted cursor by moving the last one into its place
+                    n--;
+                    cursors[i] = cursors[n];
+                    weights[i] = weights[n];
+                }
+            }
+            top.offer(id, (float) score);
+        }
+        return top.drain();
+    }
+
+    private void removePosting(String term, long id) {
+        terms.computeIfPresent(term, (t, postings) -> {
+            postings.remove(id);
+            return postings.isEmpty() ? null : postings;
+        });
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder current) {
+        if (current.length() > 0) {
+            String token = current.toString();
+            if (!tokens.contains(token)) {
+                tokens.add(token);
+            }
+            current.setLength(0);
+        }
+    }
+
+    private static boolean contains(String[] tokens, String term) {
+        for (String t : tokens) {
+            if (t.equals(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Bounded min-heap over primitive arrays keeping the best {@code limit} (id, score) pairs. */
+    private static final class TopK {
+        private final long[] ids;
+        private final float[] scores;
+        private int size;
+
+        TopK(int limit) {
+            ids = new long[limit];
+            scores = new float[limit];
+        }
+
+        void offer(long id, float score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && worse(0, id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /** Empties the heap, best first. */
+        long[] drain() {
+            long[] result = new long[size];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        // lower score is worse; among equal scores the higher id is worse
+        private boolean worse(int slot, long id, float score) {
+            return scores[slot] < score || (scores[slot] == score && ids[slot] > id);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(i, ids[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                    if (worse(child, ids[worst], scores[worst])) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
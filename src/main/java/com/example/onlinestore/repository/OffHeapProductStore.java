@@ -0,0 +1,374 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link ProductStore} that keeps products out of the Java heap. Ids, prices, versions and name references live in
+ * direct buffers, one column per field, and names are UTF-8 bytes appended to direct chunks. The only per-product heap
+ * cost is the primitive {@link LongIntHashMap} from id to slot, so the collector has next to nothing to trace no
+ * matter how large the catalog gets. Products are materialized on every read.
+ *
+ * <p>Slots are kept in id order so that scans and pages need no separate ordered index. Ids handed out by the
+ * repository only grow, which makes the common insert an append; an id below the current maximum shifts the slots
+ * above it, which is linear and meant for the rare explicit-id insert. Deletes leave a tombstone slot, and renames
+ * leave the old name bytes behind; both are reclaimed by compacting once they make up a large share of the store.
+ *
+ * <p>Reads share a read lock and writes take the write lock. A single column is limited to 2 GB, i.e. about
+ * 268 million slots.
+ */
+public class OffHeapProductStore implements ProductStore {
+    private static final int NULL_NAME = -1;
+    private static final int DELETED = -2;
+    private static final int NAME_CHUNK_BYTES = 16 << 20;
+    private static final int MAX_SLOTS = Integer.MAX_VALUE / 8;
+    private static final int SCAN_BATCH = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // everything below is guarded by "lock"
+    private ByteBuffer ids;
+    private ByteBuffer prices;
+    private ByteBuffer versions;
+    // (chunk index << 32) | offset into the chunk
+    private ByteBuffer nameRefs;
+    private ByteBuffer nameLengths;
+    private int capacity;
+    private int slots;
+    private int live;
+    private final List<ByteBuffer> nameChunks = new ArrayList<>();
+    private long nameBytes;
+    private long garbageNameBytes;
+    private final LongIntHashMap index;
+    // bumped whenever slots move, so that running scans re-seek by id
+    private int layoutVersion;
+
+    public OffHeapProductStore() {
+        this(1024);
+    }
+
+    public OffHeapProductStore(int initialCapacity) {
+        allocateColumns(Math.max(16, initialCapacity));
+        index = new LongIntHashMap(initialCapacity);
+    }
+
+    @Override
+    public Product get(long id) {
+        lock.readLock().lock();
+        try {
+            int slot = index.get(id);
+            return slot == LongIntHashMap.MISSING ? null : materialize(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Resolves the whole batch under one acquisition of the read lock. */
+    @Override
+    public List<Product> getAll(long[] ids) {
+        List<Product> found = new ArrayList<>(ids.length);
+        lock.readLock().lock();
+        try {
+            for (long id : ids) {
+                int slot = index.get(id);
+                if (slot != LongIntHashMap.MISSING) {
+                    found.add(materialize(slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    @Override
+    public Product put(Product p) {
+        long id = p.getId();
+        byte[] name = p.getName() == null ? null : p.getName().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            Product previous = null;
+            if (slot != LongIntHashMap.MISSING) {
+                previous = materialize(slot);
+                releaseName(slot);
+            } else {
+                slot = claimSlot(id);
+                index.put(id, slot);
+                live++;
+            }
+            prices.putDouble(slot * 8, p.getPrice());
+            versions.putLong(slot * 8, p.getVersion());
+            storeName(slot, name);
+            compactIfWasteful();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Product remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.remove(id);
+            if (slot == LongIntHashMap.MISSING) {
+                return null;
+            }
+            Product previous = materialize(slot);
+            releaseName(slot);
+            nameLengths.putInt(slot * 4, DELETED);
+            live--;
+            compactIfWasteful();
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Product> values() {
+        return () -> new Scan(false, 0);
+    }
+
+    @Override
+    public Iterable<Product> valuesAfter(long id) {
+        return () -> new Scan(true, id);
+    }
+
+    /** Finds a slot for a new id, appending when it is the largest id seen so far. */
+    private int claimSlot(long id) {
+        int pos = slots == 0 || ids.getLong((slots - 1) * 8) < id ? slots : firstSlotAtLeast(id);
+        if (pos < slots && ids.getLong(pos * 8) == id) {
+            // the id was deleted earlier and its tombstone is still in place
+            return pos;
+        }
+        if (slots == capacity) {
+            if (capacity == MAX_SLOTS) {
+                throw new IllegalStateException("off-heap product store is full");
+            }
+            growColumns((int) Math.min(MAX_SLOTS, capacity * 2L));
+        }
+        if (pos < slots) {
+            for (int k = slots - 1; k >= pos; k--) {
+                copySlot(k, k + 1);
+                if (nameLengths.getInt((k + 1) * 4) != DELETED) {
+                    index.put(ids.getLong((k + 1) * 8), k + 1);
+                }
+            }
+            layoutVersion++;
+        }
+        ids.putLong(pos * 8, id);
+        slots++;
+        return pos;
+    }
+
+    private int firstSlotAtLeast(long id) {
+        int lo = 0;
+        int hi = slots;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids.getLong(mid * 8) < id) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private Product materialize(int slot) {
+        int length = nameLengths.getInt(slot * 4);
+        String name = null;
+        if (length >= 0) {
+            long ref = nameRefs.getLong(slot * 8);
+            byte[] bytes = new byte[length];
+            nameChunks.get((int) (ref >>> 32)).get((int) ref, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        Product p = new Product(ids.getLong(slot * 8), name, prices.getDouble(slot * 8));
+        p.setVersion(versions.getLong(slot * 8));
+        return p;
+    }
+
+    private void storeName(int slot, byte[] name) {
+        if (name == null) {
+            nameLengths.putInt(slot * 4, NULL_NAME);
+            return;
+        }
+        ByteBuffer chunk = nameChunks.isEmpty() ? null : nameChunks.get(nameChunks.size() - 1);
+        if (chunk == null || chunk.remaining() < name.length) {
+            // start small and double up to the chunk size so that small stores stay small
+            int size = chunk == null ? 64 << 10 : Math.min(NAME_CHUNK_BYTES, chunk.capacity() * 2);
+            chunk = ByteBuffer.allocateDirect(Math.max(size, name.length));
+            nameChunks.add(chunk);
+        }
+        int offset = chunk.position();
+        chunk.put(name);
+        nameRefs.putLong(slot * 8, ((long) (nameChunks.size() - 1) << 32) | offset);
+        nameLengths.putInt(slot * 4, name.length);
+        nameBytes += name.length;
+    }
+
+    private void releaseName(int slot) {
+        int length = nameLengths.getInt(slot * 4);
+        if (length > 0) {
+            garbageNameBytes += length;
+        }
+    }
+
+    private void copySlot(int from, int to) {
+        ids.putLong(to * 8, ids.getLong(from * 8));
+        prices.putDouble(to * 8, prices.getDouble(from * 8));
+        versions.putLong(to * 8, versions.getLong(from * 8));
+        nameRefs.putLong(to * 8, nameRefs.getLong(from * 8));
+        nameLengths.putInt(to * 4, nameLengths.getInt(from * 4));
+    }
+
+    private void allocateColumns(int newCapacity) {
+        capacity = newCapacity;
+        ids = column(newCapacity * 8);
+        prices = column(newCapacity * 8);
+        versions = column(newCapacity * 8);
+        nameRefs = column(newCapacity * 8);
+        nameLengths = column(newCapacity * 4);
+    }
+
+    private void growColumns(int newCapacity) {
+        ByteBuffer oldIds = ids;
+        ByteBuffer oldPrices = prices;
+        ByteBuffer oldVersions = versions;
+        ByteBuffer oldNameRefs = nameRefs;
+        ByteBuffer oldNameLengths = nameLengths;
+        allocateColumns(newCapacity);
+        ids.put(0, oldIds, 0, slots * 8);
+        prices.put(0, oldPrices, 0, slots * 8);
+        versions.put(0, oldVersions, 0, slots * 8);
+        nameRefs.put(0, oldNameRefs, 0, slots * 8);
+        nameLengths.put(0, oldNameLengths, 0, slots * 4);
+    }
+
+    private void compactIfWasteful() {
+        int tombstones = slots - live;
+        if ((tombstones > 1024 && tombstones > slots / 4)
+                || (garbageNameBytes > NAME_CHUNK_BYTES && garbageNameBytes > nameBytes / 2)) {
+            compact();
+        }
+    }
+
+    /** Rewrites the live slots and their names contiguously, dropping tombstones and stale name bytes. */
+    private void compact() {
+        ByteBuffer oldIds = ids;
+        ByteBuffer oldPrices = prices;
+        ByteBuffer oldVersions = versions;
+        ByteBuffer oldNameRefs = nameRefs;
+        ByteBuffer oldNameLengths = nameLengths;
+        List<ByteBuffer> oldChunks = new ArrayList<>(nameChunks);
+        int oldSlots = slots;
+        allocateColumns(Math.max(16, Math.max(live * 2, capacity / 2)));
+        nameChunks.clear();
+        nameBytes = 0;
+        garbageNameBytes = 0;
+        index.clear();
+        slots = 0;
+        for (int k = 0; k < oldSlots; k++) {
+            int length = oldNameLengths.getInt(k * 4);
+            if (length == DELETED) {
+                continue;
+            }
+            long id = oldIds.getLong(k * 8);
+            ids.putLong(slots * 8, id);
+            prices.putDouble(slots * 8, oldPrices.getDouble(k * 8));
+            versions.putLong(slots * 8, oldVersions.getLong(k * 8));
+            byte[] name = null;
+            if (length >= 0) {
+                long ref = oldNameRefs.getLong(k * 8);
+                name = new byte[length];
+                oldChunks.get((int) (ref >>> 32)).get((int) ref, name);
+            }
+            storeName(slots, name);
+            index.put(id, slots);
+            slots++;
+        }
+        layoutVersion++;
+    }
+
+    private static ByteBuffer column(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Weakly consistent id-ordered iterator. Products are materialized a batch at a time under the read lock; between
+     * batches the scan remembers the last id it returned and re-seeks by id if slots have moved.
+     */
+    private final class Scan implements Iterator<Product> {
+        private final ArrayDeque<Product> batch = new ArrayDeque<>(SCAN_BATCH);
+        private boolean positioned;
+        private long lastId;
+        private int nextSlot;
+        private int seenLayout;
+        private boolean exhausted;
+
+        Scan(boolean after, long afterId) {
+            this.positioned = after;
+            this.lastId = afterId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (batch.isEmpty() && !exhausted) {
+                fill();
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.poll();
+        }
+
+        private void fill() {
+            lock.readLock().lock();
+            try {
+                if (positioned && (nextSlot == 0 || seenLayout != layoutVersion)) {
+                    nextSlot = lastId == Long.MAX_VALUE ? slots : firstSlotAtLeast(lastId + 1);
+                }
+                seenLayout = layoutVersion;
+                while (nextSlot < slots && batch.size() < SCAN_BATCH) {
+                    if (nameLengths.getInt(nextSlot * 4) != DELETED) {
+                        Product p = materialize(nextSlot);
+                        batch.add(p);
+                        lastId = p.getId();
+                        positioned = true;
+                    }
+                    nextSlot++;
+                }
+                exhausted = nextSlot >= slots;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.onlinestore.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Commits orders against the repository's stock on a single writer thread, in the style of the LMAX disruptor.
+ * Checkouts claim a slot in a ring by sequence number and publish their order into it; the writer takes every order
+ * published so far (up to {@code store.orders.batch-size}) in sequence order, sells each all or none, and only then
+ * frees the slots and completes the callers' futures. Orders thus take effect one at a time in the order they were
+ * queued, without a lock per order or per product, and the writer's wake-up, slot release and memory fences are paid
+ * once per batch instead of once per order: the busier the store, the larger the batches. Each order is checked in full
+ * before any stock is taken, so one that is short never takes and returns units; only a reservation made directly on
+ * the repository between that check and the take can still make an order give back what it took.
+ *
+ * <p>A full ring refuses new orders ({@link BusyException}) rather than blocking request threads. Futures complete on
+ * the writer thread, so what callers chain onto them should be quick or run elsewhere.
+ */
+@Component
+public class OrderPipeline {
+    private static final Logger log = LoggerFactory.getLogger(OrderPipeline.class);
+    // empty polls the writer spins through before it parks
+    private static final int SPINS = 100;
+    // set in the claimed sequence by close(), after which no order can be claimed
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    /** Thrown by {@link #submit} while the queue is full or the pipeline has shut down. */
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BusyException(String message) {
+            super(message);
+        }
+    }
+
+    /** Fails an order's future when one of its products has too little stock; nothing of the order was sold. */
+    public static class OutOfStockException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long productId;
+
+        OutOfStockException(long productId) {
+            super("not enough stock of product " + productId);
+            this.productId = productId;
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+    }
+
+    private record Order(long[] productIds, int[] quantities, CompletableFuture<Long> result) {}
+
+    private final ProductRepository repo;
+    private final AtomicReferenceArray<Order> slots;
+    private final int mask;
+    private final int batchSize;
+    // next sequence to hand out (with CLOSED set once shut down), and the first one the writer has not yet freed
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    // touched by the writer only
+    private long orderIds;
+
+    public OrderPipeline(ProductRepository repo, StoreProperties properties) {
+        this.repo = repo;
+        StoreProperties.Orders config = properties.getOrders();
+        int capacity = Integer.highestOneBit(Math.max(2, config.getQueueCapacity()) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.writer = new Thread(this::run, "order-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an order for {@code quantities[i]} units of each {@code productIds[i]}. The future completes with the new
+     * order's id once the units are sold, or with an {@link OutOfStockException} if they could not all be.
+     *
+     * @throws BusyException if the queue is full
+     */
+    public CompletableFuture<Long> submit(long[] productIds, int[] quantities) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence < 0) {
+                throw new BusyException("order pipeline has shut down");
+            }
+            if (sequence - consumed.get() > mask) {
+                throw new BusyException("too many orders waiting; try again later");
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        slots.set((int) sequence & mask, new Order(productIds.clone(), quantities.clone(), result));
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return result;
+    }
+
+    /** Stops taking orders; those already queued are failed with a {@link BusyException} unless already committed. */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        // every order claimed before this is published, and the writer fails whatever it has not committed
+        claimed.getAndAccumulate(CLOSED, (current, closed) -> current | closed);
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    private void run() {
+        Order[] batch = new Order[batchSize];
+        long[] outcomes = new long[batchSize];
+        long next = 0;
+        int idle = 0;
+        while (running) {
+            int n = 0;
+            Order order;
+            // a claimed slot that is still empty is an order being published; later ones wait their turn
+            while (n < batchSize && (order = slots.get((int) (next + n) & mask)) != null) {
+                batch[n++] = order;
+            }
+            if (n == 0) {
+                if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    // checked again after announcing the sleep, so a publish in between is not missed
+                    if (running && slots.get((int) next & mask) == null) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    idle = 0;
+                }
+                continue;
+            }
+            idle = 0;
+            for (int i = 0; i < n; i++) {
+                outcomes[i] = commit(batch[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                slots.set((int) (next + i) & mask, null);
+            }
+            next += n;
+            consumed.set(next);
+            for (int i = 0; i < n; i++) {
+                if (outcomes[i] > 0) {
+                    batch[i].result().complete(outcomes[i]);
+                } else if (outcomes[i] < 0) {
+                    batch[i].result().completeExceptionally(
+                            new OutOfStockException(batch[i].productIds()[(int) -outcomes[i] - 1]));
+                }
+                batch[i] = null;
+            }
+        }
+        failPending(next);
+    }
+
+    /** The new order's id; minus one more than the index of the line that was short; or 0 if it failed outright. */
+    private long commit(Order order) {
+        try {
+            int shortLine = repo.sell(order.productIds(), order.quantities());
+            return shortLine < 0 ? ++orderIds : -shortLine - 1;
+        } catch (RuntimeException e) {
+            log.warn("order failed", e);
+            order.result().completeExceptionally(e);
+            return 0;
+        }
+    }
+
+    private void failPending(long next) {
+        BusyException stopped = new BusyException("order pipeline has shut down");
+        long end = claimed.get() & ~CLOSED;
+        for (long s = next; s < end; s++) {
+            Order order;
+            // wait out a publish in progress
+            while ((order = slots.get((int) s & mask)) == null) {
+                Thread.onSpinWait();
+            }
+            order.result().completeExceptionally(stopped);
+        }
+    }
+}
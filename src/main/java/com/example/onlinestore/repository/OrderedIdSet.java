@@ -0,0 +1,174 @@
+package com.example.onlinestore.repository;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent set of {@code long} ids that iterates in ascending order, without a node or a boxed key per id. Ids are
+ * grouped into pages of {@value #PAGE_SIZE} consecutive values, each a bitmap found through a primitive hash index;
+ * only the page numbers are kept sorted, so an ordered structure is touched once per page created rather than on
+ * every write. Dense ids, as the repository hands them out, cost about a bit each; an isolated id costs a page.
+ *
+ * <p>Adding and removing flip one bit with an atomic update. A removal that empties a page drops the page, so memory
+ * follows the ids present rather than every id ever added. Pages are created and dropped under this set's monitor; a
+ * dropped page is first marked retired, and an add that finds its page retired after setting its bit starts over on
+ * a live one. Iterators are weakly consistent: they read each page's bits as they reach it, and see ids added or
+ * removed meanwhile or not.
+ */
+final class OrderedIdSet {
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int WORDS = PAGE_SIZE / 64;
+    // the slot after a page's bits: LIVE, or RETIRED once the page is being or has been dropped
+    private static final int STATE = WORDS;
+    private static final long LIVE = 0;
+    private static final long RETIRED = 1;
+
+    private final ConcurrentLongHashMap<AtomicLongArray> pages = new ConcurrentLongHashMap<>();
+    // the numbers of the pages in "pages", each added after its page
+    private final ConcurrentSkipListSet<Long> pageNumbers = new ConcurrentSkipListSet<>();
+
+    void add(long id) {
+        long page = id >> PAGE_SHIFT;
+        int bit = (int) id & (PAGE_SIZE - 1);
+        AtomicLongArray bits = pages.get(page);
+        while (true) {
+            if (bits == null) {
+                bits = livePage(page);
+            }
+            bits.accumulateAndGet(bit >>> 6, 1L << bit, (word, mask) -> word | mask);
+            // a page retired before the bit was set is being dropped, and the bit with it
+            if (bits.get(STATE) == LIVE) {
+                return;
+            }
+            bits = null;
+        }
+    }
+
+    void remove(long id) {
+        long page = id >> PAGE_SHIFT;
+        AtomicLongArray bits = pages.get(page);
+        if (bits != null) {
+            int bit = (int) id & (PAGE_SIZE - 1);
+            long word = bits.accumulateAndGet(bit >>> 6, ~(1L << bit), (w, mask) -> w & mask);
+            if (word == 0 && isEmpty(bits)) {
+                dropPage(page, bits);
+            }
+        }
+    }
+
+    /** The ids from {@code from} on, in ascending order. */
+    PrimitiveIterator.OfLong iteratorFrom(long from) {
+        return new Ascending(from);
+    }
+
+    int pageCount() {
+        return pageNumbers.size();
+    }
+
+    // while the monitor is held, every page in "pages" is live
+    private synchronized AtomicLongArray livePage(long page) {
+        AtomicLongArray bits = pages.get(page);
+        if (bits == null) {
+            bits = new AtomicLongArray(WORDS + 1);
+            pages.put(page, bits);
+            pageNumbers.add(page);
+        }
+        return bits;
+    }
+
+    private synchronized void dropPage(long page, AtomicLongArray bits) {
+        if (pages.get(page) != bits) {
+            return;
+        }
+        bits.set(STATE, RETIRED);
+        // an add whose bit lands from here on sees the page retired and starts over; one that landed before is seen
+        if (!isEmpty(bits)) {
+            bits.set(STATE, LIVE);
+            return;
+        }
+        pageNumbers.remove(page);
+        pages.remove(page);
+    }
+
+    private static boolean isEmpty(AtomicLongArray bits) {
+        for (int i = 0; i < WORDS; i++) {
+            if (bits.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Ascending implements PrimitiveIterator.OfLong {
+        private final Iterator<Long> pageIterator;
+        private AtomicLongArray bits;
+        private long base;
+        // next bit of the current page to look at
+        private int position;
+        private long next;
+        private boolean ready;
+        private boolean done;
+
+        Ascending(long from) {
+            long firstPage = from >> PAGE_SHIFT;
+            pageIterator = pageNumbers.tailSet(firstPage, true).iterator();
+            if (pageIterator.hasNext()) {
+                enter(pageIterator.next());
+                if (base == firstPage << PAGE_SHIFT) {
+                    position = (int) (from - base);
+                }
+            } else {
+                done = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!ready && !done) {
+                int first = position >>> 6;
+                // a page dropped since its number was listed has nothing to return
+                for (int word = first; bits != null && word < WORDS; word++) {
+                    long w = bits.get(word);
+                    if (word == first) {
+                        // bits below the position were already returned or skipped
+                        w &= -1L << position;
+                    }
+                    if (w != 0) {
+                        int bit = word * 64 + Long.numberOfTrailingZeros(w);
+                        next = base + bit;
+                        position = bit + 1;
+                        ready = true;
+                        break;
+                    }
+                }
+                if (!ready) {
+                    if (pageIterator.hasNext()) {
+                        enter(pageIterator.next());
+                    } else {
+                        done = true;
+                    }
+                }
+            }
+            return ready;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return next;
+        }
+
+        private void enter(long page) {
+            bits = pages.get(page);
+            base = page << PAGE_SHIFT;
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.onlinestore.repository;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of product ids for one search term, each with the token count of the product's name (capped at 255)
+ * for length normalization. The bulk of the entries is kept as a single {@code byte[]}: the id delta as a
+ * variable-length integer followed by one length byte, typically two or three bytes per entry. Recent additions and
+ * removals sit in small sorted overlays that are folded into the packed form once they grow.
+ *
+ * <p>Every state is immutable and published through a volatile field, so readers iterate without locking.
+ * Writers must be serialized by the caller.
+ */
+final class PostingList {
+    private static final int MIN_MERGE_THRESHOLD = 64;
+    private static final long[] NO_IDS = new long[0];
+    private static final byte[] NO_BYTES = new byte[0];
+
+    // an id may be both removed (its packed entry) and added (with a new length) at the same time
+    private record State(byte[] packed, int packedCount, long[] added, byte[] addedLengths, long[] removed) {}
+
+    private volatile State state = new State(NO_BYTES, 0, NO_IDS, NO_BYTES, NO_IDS);
+
+    int size() {
+        State s = state;
+        return s.packedCount + s.added.length - s.removed.length;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Adds an id that is not in the list. */
+    void add(long id, int length) {
+        State s = state;
+        int a = -Arrays.binarySearch(s.added, id) - 1;
+        long[] added = new long[s.added.length + 1];
+        byte[] lengths = new byte[added.length];
+        System.arraycopy(s.added, 0, added, 0, a);
+        System.arraycopy(s.addedLengths, 0, lengths, 0, a);
+        added[a] = id;
+        lengths[a] = (byte) Math.min(length, 255);
+        System.arraycopy(s.added, a, added, a + 1, s.added.length - a);
+        System.arraycopy(s.addedLengths, a, lengths, a + 1, s.added.length - a);
+        update(new State(s.packed, s.packedCount, added, lengths, s.removed));
+    }
+
+    /** Removes an id that is in the list. */
+    void remove(long id) {
+        State s = state;
+        int a = Arrays.binarySearch(s.added, id);
+        if (a >= 0) {
+            long[] added = new long[s.added.length - 1];
+            byte[] lengths = new byte[added.length];
+            System.arraycopy(s.added, 0, added, 0, a);
+            System.arraycopy(s.addedLengths, 0, lengths, 0, a);
+            System.arraycopy(s.added, a + 1, added, a, added.length - a);
+            System.arraycopy(s.addedLengths, a + 1, lengths, a, added.length - a);
+            state = new State(s.packed, s.packedCount, added, lengths, s.removed);
+            return;
+        }
+        int r = -Arrays.binarySearch(s.removed, id) - 1;
+        long[] removed = new long[s.removed.length + 1];
+        System.arraycopy(s.removed, 0, removed, 0, r);
+        removed[r] = id;
+        System.arraycopy(s.removed, r, removed, r + 1, s.removed.length - r);
+        update(new State(s.packed, s.packedCount, s.added, s.addedLengths, removed));
+    }
+
+    /** A cursor over the current contents in ascending id order; later writes are not seen by it. */
+    Cursor cursor() {
+        return new Cursor(state);
+    }
+
+    static final class Cursor {
+        private final State s;
+        private int packedRead;
+        private int pos;
+        private int a;
+        private int r;
+        // next packed entry not yet returned, valid while havePacked
+        private boolean havePacked;
+        private long packedId;
+        private int packedLength;
+        private long id;
+        private int length;
+
+        private Cursor(State s) {
+            this.s = s;
+            advancePacked();
+        }
+
+        /** Moves to the next entry; returns {@code false} when there are no more. */
+        boolean next() {
+            boolean haveAdded = a < s.added.length;
+            if (havePacked && (!haveAdded || packedId < s.added[a])) {
+                id = packedId;
+                length = packedLength;
+                advancePacked();
+                return true;
+            }
+            if (haveAdded) {
+                id = s.added[a];
+                length = s.addedLengths[a] & 0xff;
+                a++;
+                return true;
+            }
+            return false;
+        }
+
+        long id() {
+            return id;
+        }
+
+        /** Token count of the current entry's name. */
+        int length() {
+            return length;
+        }
+
+        private void advancePacked() {
+            byte[] packed = s.packed;
+            while (packedRead < s.packedCount) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = packed[pos++];
+                    delta |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                // the first id is stored zig-zag encoded so that negative ids stay short
+                packedId = packedRead == 0 ? (delta >>> 1) ^ -(delta & 1) : packedId + delta;
+                packedLength = packed[pos++] & 0xff;
+                packedRead++;
+                while (r < s.removed.length && s.removed[r] < packedId) {
+                    r++;
+                }
+                if (r < s.removed.length && s.removed[r] == packedId) {
+                    r++;
+                    continue;
+                }
+                havePacked = true;
+                return;
+            }
+            havePacked = false;
+        }
+    }
+
+    private void update(State overlay) {
+        // overlays cost a copy per write and merging costs a pass over the list; sqrt(n) balances the two
+        int threshold = Math.max(MIN_MERGE_THRESHOLD, (int) Math.sqrt(overlay.packedCount));
+        if (overlay.added.length + overlay.removed.length < threshold) {
+            state = overlay;
+            return;
+        }
+        byte[] out = new byte[(overlay.packedCount + overlay.added.length) * 3 + 16];
+        int pos = 0;
+        int count = 0;
+        long previous = 0;
+        Cursor c = new Cursor(overlay);
+        while (c.next()) {
+            long v = count == 0 ? (c.id() << 1) ^ (c.id() >> 63) : c.id() - previous;
+            previous = c.id();
+            if (out.length - pos < 11) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            while ((v & ~0x7fL) != 0) {
+                out[pos++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            out[pos++] = (byte) v;
+            out[pos++] = (byte) c.length();
+            count++;
+        }
+        state = new State(Arrays.copyOf(out, pos), count, NO_IDS, NO_BYTES, NO_IDS);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary index over {@link Product#getPrice()}: a concurrent sorted set of (price, id) pairs, so a price range is
+ * one O(log n) seek followed by an in-order walk. The indexed price of every id is remembered separately, because the
+ * heap engine hands out the stored objects and a caller may change a price on one before saving it back. Callers keep
+ * the index in step with the store under the repository's per-id write lock.
+ */
+class PriceIndex {
+    record Entry(double price, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            int c = Double.compare(price, o.price);
+            return c != 0 ? c : Long.compare(id, o.id);
+        }
+    }
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final ConcurrentLongHashMap<Entry> byId = new ConcurrentLongHashMap<>();
+
+    void put(Product p) {
+        Entry entry = new Entry(p.getPrice(), p.getId());
+        Entry previous = byId.put(p.getId(), entry);
+        if (previous != null) {
+            if (previous.compareTo(entry) == 0) {
+                return;
+            }
+            entries.remove(previous);
+        }
+        entries.add(entry);
+    }
+
+    void remove(long id) {
+        Entry previous = byId.remove(id);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+    }
+
+    /**
+     * Entries with {@code min <= price <= max}, cheapest first; weakly consistent. When {@code afterId} is given, the
+     * range starts just past {@code (afterPrice, afterId)} instead, so a caller can resume where its last page ended.
+     */
+    NavigableSet<Entry> range(double min, double max, double afterPrice, Long afterId) {
+        Entry from = new Entry(min, Long.MIN_VALUE);
+        Entry to = new Entry(max, Long.MAX_VALUE);
+        boolean fromInclusive = true;
+        if (afterId != null) {
+            Entry after = new Entry(afterPrice, afterId);
+            if (after.compareTo(from) >= 0) {
+                from = after;
+                fromInclusive = false;
+            }
+        }
+        if (from.compareTo(to) > 0) {
+            return Collections.emptyNavigableSet();
+        }
+        return entries.subSet(from, fromInclusive, to, true);
+    }
+}
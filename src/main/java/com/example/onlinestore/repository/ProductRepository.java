@@ -1,40 +1,657 @@
 package com.example.onlinestore.repository;
 
 import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Repository
 public class ProductRepository {
-    private final Map<Long, Product> store = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(ProductRepository.class);
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * The largest id a product may be given explicitly; ids start at 1. It keeps every id exact as a JSON number in
+     * JavaScript clients, and leaves the id generator, which hands out ids above every explicit one, room to count.
+     */
+    public static final long MAX_ID = (1L << 53) - 1;
+
+    // heap or off-heap by "store.engine"; either one scans in id order, so pages seek to a cursor instead of sorting
+    private final ProductStore store;
+    private final PriceIndex priceIndex = new PriceIndex();
+    private final NameIndex nameIndex = new NameIndex();
+    private final NameCompletionIndex completionIndex = new NameCompletionIndex();
+    private final VersionIndex versionIndex;
+    private final Inventory inventory;
     private final AtomicLong idGenerator = new AtomicLong(0);
+    // product versions; taken under the id's lock, so each product's versions grow in the order it was written
+    private final AtomicLong versions = new AtomicLong();
+    // bumped after every applied write; see version()
+    private final AtomicLong catalogVersion = new AtomicLong();
+    // writes to one id are serialized so the log sees them in the same order as the store
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final WriteAheadLog wal;
+    private final Path dataDirectory;
+    private final Object snapshotLock = new Object();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> changeSignals = new CopyOnWriteArrayList<>();
+    private final ChangeLog changes;
+    private final ScheduledExecutorService snapshotter;
+    private final LongAdder[] operations = new LongAdder[Operation.values().length];
+
+    /** What {@link #operations(Operation)} counts; a batch save counts once per product. */
+    public enum Operation {
+        FIND_ALL, FIND_PAGE, FIND_BY_PRICE, SEARCH, AUTOCOMPLETE, FIND_BY_ID, FIND_ALL_BY_ID, SAVE, DELETE, CHANGES,
+        RESERVE, COMMIT, RELEASE, SELL
+    }
+
+    /**
+     * Told about every write right after it reaches the store, while the product's lock is still held (so calls for
+     * one id arrive in write order) and before {@link #version()} reflects it. Implementations must be quick and must
+     * not call back into the repository's write methods.
+     */
+    public interface ChangeListener {
+        void saved(Product p);
+
+        void deleted(long id);
+    }
 
     public ProductRepository() {
-        // seed sample data
-        save(new Product(null, "Sample Product A", 19.9));
-        save(new Product(null, "Sample Product B", 29.9));
+        this(new StoreProperties());
+    }
+
+    @Autowired
+    public ProductRepository(StoreProperties properties) {
+        store = properties.getEngine() == StorageEngine.OFF_HEAP ? new OffHeapProductStore() : new HeapProductStore();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new LongAdder();
+        }
+        versionIndex = new VersionIndex(properties.getChanges().getTombstones());
+        inventory = new Inventory(properties.getInventory());
+        StoreProperties.Wal walProperties = properties.getWal();
+        dataDirectory = walProperties.getDirectory();
+        wal = walProperties.isEnabled() ? recover(walProperties) : null;
+        // start above anything an earlier run can have handed out, even one that kept no log: at the current time in
+        // microseconds, which a run only overtakes by sustaining a million writes per second
+        versions.accumulateAndGet(System.currentTimeMillis() * 1000, Math::max);
+        if (wal == null) {
+            // deletes from an earlier run are unknown
+            versionIndex.raiseHorizon(versions.get());
+        }
+        catalogVersion.set(versions.get());
+        changes = new ChangeLog(properties.getChanges().getCapacity(), versions.get() + 1);
+        long interval = properties.getSnapshot().getInterval().toMillis();
+        if (wal != null && interval > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "store-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(this::scheduledSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotter = null;
+        }
+        if (store.size() == 0 && idGenerator.get() == 0) {
+            // seed sample data
+            save(new Product(null, "Sample Product A", 19.9));
+            save(new Product(null, "Sample Product B", 29.9));
+        }
     }
 
     public List<Product> findAll() {
-        return new ArrayList<>(store.values());
+        StoreOperationEvent event = begin(Operation.FIND_ALL);
+        List<Product> all = new ArrayList<>(store.size());
+        for (Product p : store.values()) {
+            all.add(p);
+        }
+        commit(event, Operation.FIND_ALL, 0, all.size());
+        return all;
+    }
+
+    /**
+     * Live, weakly consistent iteration over the store in ascending id order. Nothing is copied, so callers can
+     * stream the whole catalog in constant memory; concurrent writes may or may not be observed. The scan is recorded
+     * once it is exhausted or closed, so callers that may stop early close it.
+     */
+    public Scan scan() {
+        return new Scan(store.values());
+    }
+
+    /** Like {@link #scan()}, but starting right after {@code afterId}. */
+    public Scan scanAfter(long afterId) {
+        return new Scan(store.valuesAfter(afterId));
+    }
+
+    /**
+     * Returns up to {@code limit} products in ascending id order, starting right after {@code afterId}
+     * (or from the beginning when it is {@code null}). Cost is proportional to the page, not the catalog.
+     */
+    public List<Product> findPage(Long afterId, int limit) {
+        StoreOperationEvent event = begin(Operation.FIND_PAGE);
+        Iterable<Product> tail = afterId == null ? store.values() : store.valuesAfter(afterId);
+        List<Product> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Product p : tail) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(p);
+        }
+        commit(event, Operation.FIND_PAGE, 0, page.size());
+        return page;
+    }
+
+    /**
+     * Returns up to {@code limit} products priced between {@code minPrice} and {@code maxPrice} (inclusive), cheapest
+     * first with ties in id order. Served from the price index in O(log n + limit).
+     */
+    public List<Product> findByPriceRange(double minPrice, double maxPrice, int limit) {
+        return findByPriceRange(minPrice, maxPrice, 0, null, limit);
+    }
+
+    /**
+     * As {@link #findByPriceRange(double, double, int)}, but resuming after the product priced {@code afterPrice} with
+     * id {@code afterId}, the last one of the previous page; a null {@code afterId} starts at the beginning.
+     */
+    public List<Product> findByPriceRange(double minPrice, double maxPrice, double afterPrice, Long afterId,
+                                          int limit) {
+        StoreOperationEvent event = begin(Operation.FIND_BY_PRICE);
+        List<Product> result = new ArrayList<>(Math.min(limit, 1024));
+        for (PriceIndex.Entry e : priceIndex.range(minPrice, maxPrice, afterPrice, afterId)) {
+            if (result.size() == limit) {
+                break;
+            }
+            Product p = store.get(e.id());
+            // the index is updated right after the store, so skip entries caught between the two
+            if (p != null && p.getPrice() >= minPrice && p.getPrice() <= maxPrice) {
+                result.add(p);
+            }
+        }
+        commit(event, Operation.FIND_BY_PRICE, 0, result.size());
+        return result;
+    }
+
+    /** Full-text search over product names: up to {@code limit} products matching any query term, best first. */
+    public List<Product> search(String query, int limit) {
+        StoreOperationEvent event = begin(Operation.SEARCH);
+        long[] ids = nameIndex.search(query, limit);
+        List<Product> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product p = store.get(id);
+            if (p != null) {
+                result.add(p);
+            }
+        }
+        commit(event, Operation.SEARCH, 0, result.size());
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} distinct product names having a word that starts with {@code prefix}, most common first.
+     * Served from a prefix index, so the cost depends on the prefix length, not the catalog.
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        StoreOperationEvent event = begin(Operation.AUTOCOMPLETE);
+        List<String> names = completionIndex.complete(prefix, limit);
+        commit(event, Operation.AUTOCOMPLETE, 0, names.size());
+        return names;
+    }
+
+    /**
+     * Store-wide version that changes after every completed write and never repeats, also across restarts. Read it
+     * before reading the catalog: a write that races with the read then changes it again, so a response is never
+     * tagged with a version that claims more than the response shows.
+     */
+    public long version() {
+        return catalogVersion.get();
     }
 
     public Optional<Product> findById(Long id) {
-        return Optional.ofNullable(store.get(id));
+        StoreOperationEvent event = begin(Operation.FIND_BY_ID);
+        Product p = store.get(id);
+        commit(event, Operation.FIND_BY_ID, id, p == null ? 0 : 1);
+        return Optional.ofNullable(p);
+    }
+
+    /**
+     * The products with the given ids, in the order requested; ids without a product are left out. Resolved in a
+     * single pass over the store with no per-id {@link Optional}.
+     */
+    public List<Product> findAllById(long[] ids) {
+        StoreOperationEvent event = begin(Operation.FIND_ALL_BY_ID);
+        List<Product> found = store.getAll(ids);
+        commit(event, Operation.FIND_ALL_BY_ID, 0, found.size());
+        return found;
     }
 
     public Product save(Product p) {
-        if (p.getId() == null) {
-            p.setId(idGenerator.incrementAndGet());
-        }
-        store.put(p.getId(), p);
+        saveAll(List.of(p));
         return p;
     }
 
+    /**
+     * Saves {@code products} in order, assigning ids to those without one from a single block reserved up front, above
+     * any id given explicitly.
+     * Each product is written under its own id's lock as by {@link #save}, but the batch bumps {@link #version()}
+     * once and waits for the log once, so a large import shares one flush instead of queueing for one per product.
+     *
+     * @return index for index, the product each save replaced, or {@code null} where it created one
+     * @throws IllegalArgumentException if an explicit id is outside 1 to {@link #MAX_ID}; nothing is saved
+     */
+    public List<Product> saveAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        for (Product p : products) {
+            if (p.getId() != null && (p.getId() < 1 || p.getId() > MAX_ID)) {
+                throw new IllegalArgumentException("product id must be between 1 and " + MAX_ID);
+            }
+        }
+        operations[Operation.SAVE.ordinal()].add(products.size());
+        StoreOperationEvent event = new StoreOperationEvent();
+        event.begin();
+        int unassigned = 0;
+        for (Product p : products) {
+            if (p.getId() == null) {
+                unassigned++;
+            } else {
+                // an explicit id is taken from now on: ids handed out later start above it
+                idGenerator.accumulateAndGet(p.getId(), Math::max);
+            }
+        }
+        long nextId = unassigned == 0 ? 0 : idGenerator.getAndAdd(unassigned) + 1;
+        Product[] previous = new Product[products.size()];
+        long lsn = 0;
+        for (int i = 0; i < previous.length; i++) {
+            Product p = products.get(i);
+            if (p.getId() == null) {
+                p.setId(nextId++);
+            }
+            synchronized (lockFor(p.getId())) {
+                p.setVersion(versions.incrementAndGet());
+                previous[i] = apply(p);
+                if (wal != null) {
+                    lsn = wal.appendPut(p);
+                }
+                changes.append(ChangeLog.saved(p));
+                for (ChangeListener listener : listeners) {
+                    listener.saved(p);
+                }
+            }
+        }
+        catalogVersion.incrementAndGet();
+        signalChanges();
+        // wait outside the lock so that writers to other ids can join the same log flush; the last append covers
+        // all earlier ones
+        if (wal != null) {
+            wal.await(lsn);
+        }
+        commit(event, Operation.SAVE, products.size() == 1 ? products.get(0).getId() : 0, products.size());
+        return Arrays.asList(previous);
+    }
+
     public void deleteById(Long id) {
-        store.remove(id);
+        StoreOperationEvent event = begin(Operation.DELETE);
+        long lsn = 0;
+        boolean deleted;
+        synchronized (lockFor(id)) {
+            deleted = applyDelete(id);
+            if (deleted) {
+                inventory.remove(id);
+                long version = versions.incrementAndGet();
+                if (wal != null) {
+                    lsn = wal.appendDelete(id, version);
+                }
+                versionIndex.tombstone(id, version);
+                changes.append(ChangeLog.deleted(id, version));
+                for (ChangeListener listener : listeners) {
+                    listener.deleted(id);
+                }
+            }
+        }
+        if (deleted) {
+            catalogVersion.incrementAndGet();
+            signalChanges();
+        }
+        if (lsn != 0) {
+            wal.await(lsn);
+        }
+        commit(event, Operation.DELETE, id, deleted ? 1 : 0);
+    }
+
+    /** Sequence number of the latest write so far; a change stream opened now starts right after it. */
+    public long changeHead() {
+        return versions.get();
+    }
+
+    /**
+     * Up to {@code max} changes following sequence number {@code afterSeq}, oldest first; never waits. A change's
+     * sequence number is the version the write recorded, so a consumer that has applied a product at some version
+     * holds every change to it up to there.
+     *
+     * @return the changes, or an empty list if there is none yet
+     * @throws ChangeLog.TruncatedException if changes after {@code afterSeq} are no longer retained, were made before
+     *                                      this process started, or lie in the future; the consumer has to reload the
+     *                                      catalog and continue from {@link #changeHead()}
+     */
+    public List<ChangeLog.Change> changesAfter(long afterSeq, int max) {
+        StoreOperationEvent event = begin(Operation.CHANGES);
+        if (afterSeq > versions.get()) {
+            throw new ChangeLog.TruncatedException(afterSeq + 1);
+        }
+        List<ChangeLog.Change> read = changes.read(afterSeq + 1, max);
+        commit(event, Operation.CHANGES, 0, read.size());
+        return read;
+    }
+
+    /**
+     * What changed after sync position {@code since}: up to {@code limit} products created or updated and tombstones
+     * for deleted ids, in version order, served from a version index so the cost follows the size of the answer. A
+     * position is a version from an earlier answer, or 0 for a client that holds nothing, which receives the whole
+     * catalog. Answers never run ahead of a write that is still in flight, so a client that keeps syncing from the
+     * returned position misses nothing; a product may be returned at a newer version than the position, and again
+     * by the next sync.
+     *
+     * @throws ChangeLog.TruncatedException if deletes after {@code since} are no longer remembered, happened in a run
+     *                                      without a log, or {@code since} lies in the future; the client has to reload
+     *                                      the catalog, for example by syncing from 0
+     */
+    public ProductChanges changesSince(long since, int limit) {
+        StoreOperationEvent event = begin(Operation.CHANGES);
+        long head = versions.get();
+        if (since > head || (since > 0 && since < versionIndex.horizon())) {
+            throw new ChangeLog.TruncatedException(since + 1);
+        }
+        long until = changes.publishedThrough(head);
+        List<VersionIndex.Entry> entries = versionIndex.range(since, until, limit + 1);
+        if (since > 0 && since < versionIndex.horizon()) {
+            // tombstones past the position were dropped while we read
+            throw new ChangeLog.TruncatedException(since + 1);
+        }
+        List<Product> products = new ArrayList<>();
+        List<ProductChanges.Tombstone> deleted = new ArrayList<>();
+        long position = since;
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            VersionIndex.Entry e = entries.get(i);
+            position = e.version();
+            if (e.deleted()) {
+                deleted.add(new ProductChanges.Tombstone(e.id(), e.version()));
+                continue;
+            }
+            Product p = store.get(e.id());
+            // saved again since the index was read: a newer entry follows in this range, or the next sync has it
+            if (p != null && (p.getVersion() == e.version() || p.getVersion() > until)) {
+                products.add(p);
+            }
+        }
+        boolean more = entries.size() > limit;
+        commit(event, Operation.CHANGES, 0, products.size() + deleted.size());
+        return new ProductChanges(more ? position : Math.max(since, until), products, deleted, more);
+    }
+
+    /** Stock of an existing product; a product whose stock was never set has none. */
+    public Optional<Stock> stock(long productId) {
+        return store.get(productId) == null ? Optional.empty() : Optional.of(inventory.stock(productId));
+    }
+
+    /**
+     * Sets how many units of an existing product can be reserved, on top of those already held by open reservations.
+     *
+     * @return the new stock, or empty if there is no such product
+     */
+    public Optional<Stock> setStock(long productId, long available) {
+        synchronized (lockFor(productId)) {
+            if (store.get(productId) == null) {
+                return Optional.empty();
+            }
+            inventory.setAvailable(productId, available);
+        }
+        return Optional.of(inventory.stock(productId));
+    }
+
+    /**
+     * Takes {@code quantity} units of a product out of its available stock, atomically and without locking, or
+     * nothing if fewer are available: concurrent reservations of one product never oversell it.
+     *
+     * @return the open reservation, or empty if there was not enough stock
+     */
+    public Optional<Reservation> reserve(long productId, int quantity) {
+        count(Operation.RESERVE);
+        return Optional.ofNullable(inventory.reserve(productId, quantity));
+    }
+
+    /** Sells the units of an open reservation; empty if it is unknown or was already committed or released. */
+    public Optional<Reservation> commitReservation(long reservationId) {
+        count(Operation.COMMIT);
+        return Optional.ofNullable(inventory.commit(reservationId));
+    }
+
+    /** Returns the units of an open reservation to stock; empty if it is unknown or has already ended. */
+    public Optional<Reservation> releaseReservation(long reservationId) {
+        count(Operation.RELEASE);
+        return Optional.ofNullable(inventory.release(reservationId));
+    }
+
+    /**
+     * Sells units of several products at once, all or none, straight out of their available stock: either every
+     * {@code quantities[i]} units of {@code productIds[i]} are taken, or nothing is. Callers that must not interleave
+     * with each other go through one thread, as {@link OrderPipeline} does; reservations made meanwhile still take
+     * stock directly (see {@link Inventory#sell}).
+     *
+     * @return the index of the first product without enough stock, or -1 if the sale went through
+     */
+    public int sell(long[] productIds, int[] quantities) {
+        count(Operation.SELL);
+        return inventory.sell(productIds, quantities);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /** How many times {@code op} has been called on this repository; counted always, at the cost of a striped add. */
+    public long operations(Operation op) {
+        return operations[op.ordinal()].sum();
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs {@code signal} after each save batch or delete has been published to the change log, on the writing thread
+     * but outside every lock. It is not told what changed, so one signal can stand for many writes; it must be quick.
+     */
+    public void onChangesPublished(Runnable signal) {
+        changeSignals.add(signal);
+    }
+
+    /**
+     * Writes a snapshot of the store and drops the log segments it covers. Writers keep running meanwhile: the log is
+     * rotated first, so anything the snapshot's scan misses is replayed from the new segment on restart.
+     *
+     * @throws IllegalStateException if the write-ahead log is disabled
+     */
+    public void snapshot() throws IOException {
+        if (wal == null) {
+            throw new IllegalStateException("snapshots require the write-ahead log");
+        }
+        synchronized (snapshotLock) {
+            long segment = wal.rotate();
+            // read after rotating, so that they cover every id and version in the segments the snapshot replaces
+            long idHighWater = idGenerator.get();
+            long versionHighWater = versions.get();
+            Snapshots.write(dataDirectory, segment, idHighWater, versionHighWater, store.values());
+            wal.deleteSegmentsBefore(segment);
+            Snapshots.deleteBefore(dataDirectory, segment);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    // store and indexes change together; callers hold the id's lock or are single-threaded recovery
+    private Product apply(Product p) {
+        Product previous = store.put(p);
+        priceIndex.put(p);
+        versionIndex.put(p.getId(), p.getVersion());
+        nameIndex.put(p.getId(), p.getName());
+        completionIndex.put(p.getId(), p.getName());
+        return previous;
+    }
+
+    private boolean applyDelete(long id) {
+        if (store.remove(id) == null) {
+            return false;
+        }
+        priceIndex.remove(id);
+        versionIndex.remove(id);
+        nameIndex.remove(id);
+        completionIndex.remove(id);
+        return true;
+    }
+
+    /**
+     * A lazy scan from {@link #scan()}. Its {@link StoreOperationEvent} spans from the call to the end of the
+     * iteration, the caller's work between products included, and counts the products handed out.
+     */
+    public final class Scan implements Iterator<Product>, AutoCloseable {
+        private final Iterator<Product> products;
+        private final StoreOperationEvent event = begin(Operation.FIND_ALL);
+        private int returned;
+        private boolean recorded;
+
+        private Scan(Iterable<Product> products) {
+            this.products = products.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (recorded) {
+                return false;
+            }
+            if (products.hasNext()) {
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return products.next();
+        }
+
+        /** Ends the scan and records it, if that has not happened yet; later calls do nothing. */
+        @Override
+        public void close() {
+            if (!recorded) {
+                recorded = true;
+                commit(event, Operation.FIND_ALL, 0, returned);
+            }
+        }
+    }
+
+    private void signalChanges() {
+        for (Runnable signal : changeSignals) {
+            signal.run();
+        }
+    }
+
+    private void count(Operation op) {
+        operations[op.ordinal()].increment();
+    }
+
+    // an event that is never committed is dropped by escape analysis, so a disabled event costs a flag check
+    private StoreOperationEvent begin(Operation op) {
+        count(op);
+        StoreOperationEvent event = new StoreOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(StoreOperationEvent event, Operation op, long id, int products) {
+        if (event.shouldCommit()) {
+            event.operation = op.name();
+            event.productId = id;
+            event.products = products;
+            event.commit();
+        }
+    }
+
+    private Object lockFor(long id) {
+        return locks[(int) (id ^ (id >>> 32)) & (LOCK_STRIPES - 1)];
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            // keep the schedule alive; the log still holds everything, it just keeps growing until the next attempt
+            log.warn("product store snapshot failed", e);
+        }
+    }
+
+    private WriteAheadLog recover(StoreProperties.Wal properties) {
+        try {
+            Snapshots.Header snapshot = Snapshots.loadLatest(properties.getDirectory(), this::apply);
+            long fromSegment = 0;
+            if (snapshot != null) {
+                fromSegment = snapshot.segment();
+                idGenerator.set(snapshot.idHighWater());
+                versions.set(snapshot.versionHighWater());
+                // the snapshot keeps no record of what was deleted before it
+                versionIndex.raiseHorizon(snapshot.versionHighWater());
+            }
+            WriteAheadLog opened = new WriteAheadLog(properties.getDirectory(), properties.getDurability(),
+                    properties.getFlushInterval());
+            opened.replay(fromSegment, new WriteAheadLog.Replay() {
+                @Override
+                public void put(Product p) {
+                    apply(p);
+                    idGenerator.accumulateAndGet(p.getId(), Math::max);
+                    versions.accumulateAndGet(p.getVersion(), Math::max);
+                }
+
+                @Override
+                public void delete(long id, long version) {
+                    applyDelete(id);
+                    versionIndex.tombstone(id, version);
+                    versions.accumulateAndGet(version, Math::max);
+                }
+            });
+            return opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not open write-ahead log in " + properties.getDirectory(), e);
+        }
     }
 }
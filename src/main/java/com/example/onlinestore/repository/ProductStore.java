@@ -0,0 +1,46 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primary storage behind {@link ProductRepository}, keyed by product id. Implementations are thread-safe; the
+ * repository serializes writes to the same id, so they only need to stay consistent under concurrent access to
+ * different ids.
+ */
+public interface ProductStore {
+
+    /** Returns the product with the given id, or {@code null}. */
+    Product get(long id);
+
+    /**
+     * Looks up every id in {@code ids} and returns the products found, in the order of {@code ids}. Ids without a
+     * product are skipped.
+     */
+    default List<Product> getAll(long[] ids) {
+        List<Product> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product p = get(id);
+            if (p != null) {
+                found.add(p);
+            }
+        }
+        return found;
+    }
+
+    /** Stores {@code p} under its id and returns the product it replaced, or {@code null}. */
+    Product put(Product p);
+
+    /** Removes and returns the product with the given id, or {@code null} if there was none. */
+    Product remove(long id);
+
+    int size();
+
+    /** Weakly consistent view of all products in ascending id order. */
+    Iterable<Product> values();
+
+    /** Weakly consistent view of the products with an id greater than {@code id}, in ascending id order. */
+    Iterable<Product> valuesAfter(long id);
+}
@@ -0,0 +1,94 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Reactor view of {@link ProductRepository} for the event-loop deployment. Reads are served from memory and only take
+ * short in-memory locks, so they run on the subscribing thread. Writes can wait for the write-ahead log to flush, so
+ * they are moved to the bounded elastic scheduler and never hold an event loop. Listings are lazy: {@link #findAll()}
+ * pulls products from the live store as the subscriber requests them, so no listing is collected in memory first.
+ */
+@Component
+public class ReactiveProductRepository {
+    private final ProductRepository repo;
+
+    public ReactiveProductRepository(ProductRepository repo) {
+        this.repo = repo;
+    }
+
+    /** See {@link ProductRepository#version()}; read it before subscribing to the catalog it should describe. */
+    public long version() {
+        return repo.version();
+    }
+
+    /**
+     * The whole catalog in id order, read from the store on demand as by {@link ProductRepository#scan()}; the scan is
+     * closed when the stream completes, fails or is cancelled.
+     */
+    public Flux<Product> findAll() {
+        return Flux.using(repo::scan, scan -> Flux.fromIterable(() -> scan), ProductRepository.Scan::close);
+    }
+
+    public Mono<List<Product>> findPage(Long afterId, int limit) {
+        return Mono.fromSupplier(() -> repo.findPage(afterId, limit));
+    }
+
+    public Mono<Product> findById(long id) {
+        return Mono.defer(() -> Mono.justOrEmpty(repo.findById(id)));
+    }
+
+    public Flux<Product> findAllById(long[] ids) {
+        return Flux.defer(() -> Flux.fromIterable(repo.findAllById(ids)));
+    }
+
+    public Mono<List<Product>> findByPriceRange(double minPrice, double maxPrice, double afterPrice, Long afterId,
+                                                int limit) {
+        return Mono.fromSupplier(() -> repo.findByPriceRange(minPrice, maxPrice, afterPrice, afterId, limit));
+    }
+
+    public Flux<Product> search(String query, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(repo.search(query, limit)));
+    }
+
+    public Flux<String> autocomplete(String prefix, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(repo.autocomplete(prefix, limit)));
+    }
+
+    public Mono<ProductChanges> changesSince(long since, int limit) {
+        return Mono.fromSupplier(() -> repo.changesSince(since, limit));
+    }
+
+    public Mono<Stock> stock(long productId) {
+        return Mono.fromSupplier(() -> repo.stock(productId).orElse(null));
+    }
+
+    public Mono<Stock> setStock(long productId, long available) {
+        return Mono.fromSupplier(() -> repo.setStock(productId, available).orElse(null));
+    }
+
+    /** See {@link ProductRepository#reserve}; lock-free, so it runs on the subscribing thread. */
+    public Mono<Reservation> reserve(long productId, int quantity) {
+        return Mono.fromSupplier(() -> repo.reserve(productId, quantity).orElse(null));
+    }
+
+    public Mono<Reservation> commitReservation(long reservationId) {
+        return Mono.fromSupplier(() -> repo.commitReservation(reservationId).orElse(null));
+    }
+
+    public Mono<Reservation> releaseReservation(long reservationId) {
+        return Mono.fromSupplier(() -> repo.releaseReservation(reservationId).orElse(null));
+    }
+
+    public Mono<Product> save(Product p) {
+        return Mono.fromCallable(() -> repo.save(p)).subscribeOn(Schedulers.boundedElastic());
+    }
+}
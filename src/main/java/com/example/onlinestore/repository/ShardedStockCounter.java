@@ -0,0 +1,163 @@
+package com.example.onlinestore.repository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A stock count that spreads a hot product's units over shards (a power of two, by default about one per core), so that
+ * concurrent buyers take from different cache lines instead of all retrying one compare-and-set. A thread's home shard
+ * is picked by a random per-thread probe, not by the core it runs on, so two threads may share a home. Like
+ * {@link java.util.concurrent.atomic.LongAdder} it starts as a single base count and only grows its shards the first
+ * time a take loses a CAS race, so the many products that are never contended stay one {@link AtomicLong}.
+ *
+ * <p>Each thread takes from its home shard. A shard that runs short gathers what it still holds, then steals from the
+ * base and from the other shards in turn, taking half of a victim's units (at least what it needs) and keeping the
+ * surplus at home, so stock flows towards the threads that are buying and later takes are local again. Every unit is in
+ * exactly one place or held by the stealer moving it, and units are only taken by a compare-and-set that checks there
+ * are enough, or once gathered, so the product is never oversold. The price is at the very end of a sale: a take can
+ * be refused while the last units are in flight between shards on behalf of another take. Once every place is empty a
+ * take only reads them, so a sold-out product sees no writes however many buyers keep trying.
+ */
+final class ShardedStockCounter implements StockCounter {
+    // longs per shard: 128 bytes, so neighbouring shards never share a cache line (or an adjacent-line prefetch pair)
+    private static final int PAD = 16;
+    // a random number per thread, picking its home shard
+    private static final ThreadLocal<Integer> PROBE =
+            ThreadLocal.withInitial(() -> ThreadLocalRandom.current().nextInt());
+
+    private final AtomicLong base = new AtomicLong();
+    private final int shards;
+    private volatile AtomicLongArray cells;
+
+    ShardedStockCounter(int shards) {
+        int n = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        this.shards = Integer.highestOneBit(Math.max(2, n) - 1) << 1;
+    }
+
+    @Override
+    public boolean tryTake(int quantity) {
+        AtomicLongArray cs = cells;
+        if (cs == null) {
+            long current = base.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (base.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+            cs = inflate();
+        }
+        int home = home();
+        return takeFrom(cs, home * PAD, quantity) || steal(cs, home, quantity);
+    }
+
+    @Override
+    public void add(long quantity) {
+        AtomicLongArray cs = cells;
+        if (cs == null) {
+            base.addAndGet(quantity);
+        } else {
+            cs.addAndGet(home() * PAD, quantity);
+        }
+    }
+
+    @Override
+    public void set(long available) {
+        AtomicLongArray cs = cells;
+        if (cs != null) {
+            for (int i = 0; i < shards; i++) {
+                cs.set(i * PAD, 0);
+            }
+        }
+        // shards refill from the base as they are used
+        base.set(available);
+    }
+
+    @Override
+    public long available() {
+        long sum = base.get();
+        AtomicLongArray cs = cells;
+        if (cs != null) {
+            for (int i = 0; i < shards; i++) {
+                sum += cs.get(i * PAD);
+            }
+        }
+        return sum;
+    }
+
+    // package-private so that tests can spread units over the shards
+    synchronized AtomicLongArray inflate() {
+        if (cells == null) {
+            cells = new AtomicLongArray(shards * PAD);
+        }
+        return cells;
+    }
+
+    private int home() {
+        return PROBE.get() & (shards - 1);
+    }
+
+    private static boolean takeFrom(AtomicLongArray cs, int index, int quantity) {
+        long current;
+        do {
+            current = cs.get(index);
+            if (current < quantity) {
+                return false;
+            }
+        } while (!cs.compareAndSet(index, current, current - quantity));
+        return true;
+    }
+
+    /**
+     * Gathers {@code quantity} units from what the home shard has left, the base and the other shards, leaving any
+     * surplus in the home shard.
+     */
+    private boolean steal(AtomicLongArray cs, int home, int quantity) {
+        // read before writing, so that a sold-out product is not written at all
+        long gathered = cs.get(home * PAD) == 0 ? 0 : cs.getAndSet(home * PAD, 0);
+        if (gathered < quantity) {
+            gathered += grab(base, quantity - gathered);
+        }
+        for (int i = 1; i < shards && gathered < quantity; i++) {
+            int victim = ((home + i) & (shards - 1)) * PAD;
+            long need = quantity - gathered;
+            long current;
+            long take;
+            do {
+                current = cs.get(victim);
+                if (current == 0) {
+                    take = 0;
+                    break;
+                }
+                take = current <= need ? current : Math.max(need, current / 2);
+            } while (!cs.compareAndSet(victim, current, current - take));
+            gathered += take;
+        }
+        if (gathered >= quantity) {
+            if (gathered > quantity) {
+                cs.addAndGet(home * PAD, gathered - quantity);
+            }
+            return true;
+        }
+        // not enough anywhere: put back what was gathered
+        if (gathered > 0) {
+            cs.addAndGet(home * PAD, gathered);
+        }
+        return false;
+    }
+
+    /** Moves at least {@code need} units (or all there are) out of the base, half of it when it holds more. */
+    private static long grab(AtomicLong from, long need) {
+        long current;
+        long take;
+        do {
+            current = from.get();
+            if (current == 0) {
+                return 0;
+            }
+            take = current <= need ? current : Math.max(need, current / 2);
+        } while (!from.compareAndSet(current, current - take));
+        return take;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time images of the product store. A snapshot named after WAL segment {@code n} holds every write from
+ * segments below {@code n} (and possibly some later ones, which replay simply applies again), so restart only has to
+ * load the newest snapshot and replay segments from {@code n} onwards.
+ *
+ * <p>Layout: {@code [int magic][int format][long segment][long idHighWater][long versionHighWater]}, then
+ * {@code [int length][product]} per product in id order, then {@code [int -1][long count][int crc32c of everything
+ * before it]}.
+ */
+final class Snapshots {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x50534e50;
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+    private static final int TRAILER_BYTES = 4 + 8 + 4;
+    // mapped a window at a time so that snapshots larger than 2 GB can still be read
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    /** What a loaded snapshot says about the log it was taken from. */
+    record Header(long segment, long idHighWater, long versionHighWater) {}
+
+    private Snapshots() {}
+
+    /**
+     * Writes a snapshot of {@code products} and atomically publishes it once it is fully on disk. The iteration may
+     * run concurrently with writers; anything it misses is in segment {@code segment} or later.
+     */
+    static void write(Path directory, long segment, long idHighWater, long versionHighWater,
+                      Iterable<Product> products) throws IOException {
+        Path target = file(directory, segment);
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(segment);
+            out.writeLong(idHighWater);
+            out.writeLong(versionHighWater);
+            ByteBuffer record = ByteBuffer.allocate(256);
+            long count = 0;
+            for (Product p : products) {
+                byte[] name = WriteAheadLog.encodeName(p);
+                int size = WriteAheadLog.encodedSize(name);
+                if (record.capacity() < size) {
+                    record = ByteBuffer.allocate(Math.max(size, record.capacity() * 2));
+                }
+                record.clear();
+                WriteAheadLog.encode(record, p, name);
+                out.writeInt(size);
+                out.write(record.array(), 0, size);
+                count++;
+            }
+            out.writeInt(-1);
+            out.writeLong(count);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    /**
+     * Memory-maps the newest snapshot in {@code directory} and hands every product in it to {@code target}.
+     *
+     * @return the snapshot's header, or {@code null} if there is no snapshot yet
+     */
+    static Header loadLatest(Path directory, Consumer<Product> target) throws IOException {
+        Map.Entry<Long, Path> latest = list(directory).lastEntry();
+        if (latest == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(latest.getValue(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || !checksumMatches(channel, size)) {
+                throw new IOException("corrupt snapshot " + latest.getValue());
+            }
+            MappedInput in = new MappedInput(channel, size);
+            ByteBuffer header = in.require(HEADER_BYTES);
+            int format = header.getInt() == MAGIC ? header.getInt() : -1;
+            if (format != FORMAT) {
+                throw new IOException("unsupported snapshot " + latest.getValue());
+            }
+            long segment = header.getLong();
+            long idHighWater = header.getLong();
+            Header result = new Header(segment, idHighWater, header.getLong());
+            int length;
+            while ((length = in.require(4).getInt()) >= 0) {
+                target.accept(WriteAheadLog.decode(in.require(length)));
+            }
+            return result;
+        }
+    }
+
+    /** Removes snapshots superseded by the one for {@code segment}. */
+    static void deleteBefore(Path directory, long segment) throws IOException {
+        for (Path file : list(directory).headMap(segment).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Path file(Path directory, long segment) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, segment, SUFFIX));
+    }
+
+    private static TreeMap<Long, Path> list(Path directory) throws IOException {
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    snapshots.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())),
+                            file);
+                }
+            });
+        }
+        return snapshots;
+    }
+
+    private static boolean checksumMatches(FileChannel channel, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        long covered = size - 4;
+        for (long position = 0; position < covered; position += WINDOW_BYTES) {
+            long length = Math.min(WINDOW_BYTES, covered - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        ByteBuffer stored = ByteBuffer.allocate(4);
+        channel.read(stored, covered);
+        return stored.flip().getInt() == (int) crc.getValue();
+    }
+
+    /** Sequential reader over a file that is mapped one window at a time. */
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInput(FileChannel channel, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            map(0, 0);
+        }
+
+        /** Returns the current window positioned so that at least {@code bytes} can be read from it. */
+        ByteBuffer require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                map(windowStart + window.position(), bytes);
+            }
+            return window;
+        }
+
+        private void map(long position, int atLeast) throws IOException {
+            long length = Math.min(Math.max(WINDOW_BYTES, atLeast), size - position);
+            if (length < atLeast) {
+                throw new IOException("truncated snapshot");
+            }
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.onlinestore.repository;
+
+/** Units of one product available for reservation; never goes below zero. */
+interface StockCounter {
+
+    /** Takes {@code quantity} units if at least that many are available, atomically. */
+    boolean tryTake(int quantity);
+
+    /** Returns units, e.g. from a released reservation. */
+    void add(long quantity);
+
+    /** Replaces the count; concurrent takes may or may not see the old value. */
+    void set(long available);
+
+    /** The current count; weakly consistent while takes are in progress. */
+    long available();
+}
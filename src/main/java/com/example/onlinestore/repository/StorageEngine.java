@@ -0,0 +1,12 @@
+package com.example.onlinestore.repository;
+
+/** Which {@link ProductStore} backs the repository. */
+public enum StorageEngine {
+    /**
+     * Products as objects in a primitive-keyed hash map, walked in id order through a paged id bitmap; see
+     * {@link HeapProductStore}.
+     */
+    HEAP,
+    /** Products packed into off-heap columns; see {@link OffHeapProductStore}. */
+    OFF_HEAP
+}
@@ -0,0 +1,34 @@
+package com.example.onlinestore.repository;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one {@link ProductRepository} call, timed from entry to return, so that store time can
+ * be told apart from the serialization around it in a recording. Saves are timed including the wait for the
+ * write-ahead log. Lazy scans ({@link ProductRepository#scan()}) do their work while the caller iterates, so theirs
+ * run until the caller has exhausted or closed the scan. Recorded by any running recording (e.g.
+ * {@code -XX:StartFlightRecording}) unless its settings disable {@code com.example.onlinestore.StoreOperation}; with no
+ * recording the event is never committed and costs next to nothing.
+ */
+@Name("com.example.onlinestore.StoreOperation")
+@Label("Store Operation")
+@Category({"Online Store", "Repository"})
+@Description("A product repository call")
+@StackTrace(false)
+class StoreOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Product Id")
+    @Description("The product a single-product call was about, or 0")
+    long productId;
+
+    @Label("Products")
+    @Description("Products returned, saved or deleted")
+    int products;
+}
@@ -0,0 +1,251 @@
+package com.example.onlinestore.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "store")
+public class StoreProperties {
+    private StorageEngine engine = StorageEngine.HEAP;
+    private final Wal wal = new Wal();
+    private final Snapshot snapshot = new Snapshot();
+    private final JsonCache jsonCache = new JsonCache();
+    private final Changes changes = new Changes();
+    private final Inventory inventory = new Inventory();
+    private final Carts carts = new Carts();
+    private final Orders orders = new Orders();
+    private final Idempotency idempotency = new Idempotency();
+
+    public StorageEngine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    public Wal getWal() {
+        return wal;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public JsonCache getJsonCache() {
+        return jsonCache;
+    }
+
+    public Changes getChanges() {
+        return changes;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public Carts getCarts() {
+        return carts;
+    }
+
+    public Orders getOrders() {
+        return orders;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public static class Wal {
+        private boolean enabled = false;
+        private Path directory = Path.of("data");
+        private WalDurability durability = WalDurability.FSYNC;
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public WalDurability getDurability() {
+            return durability;
+        }
+
+        public void setDurability(WalDurability durability) {
+            this.durability = durability;
+        }
+
+        /** Upper bound on how long an {@link WalDurability#ASYNC} write stays only in memory. */
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+    }
+
+    public static class Snapshot {
+        private Duration interval = Duration.ofMinutes(5);
+
+        /** How often a snapshot is written and the log truncated; zero disables periodic snapshots. */
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+
+    public static class JsonCache {
+        private int entries = 65536;
+
+        /** Slots for pre-encoded single products, rounded up to a power of two. */
+        public int getEntries() {
+            return entries;
+        }
+
+        public void setEntries(int entries) {
+            this.entries = entries;
+        }
+    }
+
+    public static class Changes {
+        private int capacity = 65536;
+        private int tombstones = 1_000_000;
+
+        /** Most recent changes kept for consumers to resume from, rounded up to a power of two. */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** Deleted ids remembered for incremental sync; a client that has been away longer must reload. */
+        public int getTombstones() {
+            return tombstones;
+        }
+
+        public void setTombstones(int tombstones) {
+            this.tombstones = tombstones;
+        }
+    }
+
+    public static class Inventory {
+        private InventoryMode mode = InventoryMode.ATOMIC;
+        private int shards = 0;
+
+        public InventoryMode getMode() {
+            return mode;
+        }
+
+        public void setMode(InventoryMode mode) {
+            this.mode = mode;
+        }
+
+        /** Shards per contended product in {@code SHARDED} mode, rounded up to a power of two; 0 for one per core. */
+        public int getShards() {
+            return shards;
+        }
+
+        public void setShards(int shards) {
+            this.shards = shards;
+        }
+    }
+
+    public static class Carts {
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        private Duration expiryTick = Duration.ofSeconds(1);
+        private int maxLines = 100;
+
+        /** A cart that is neither read nor changed for this long is dropped. */
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        /** Resolution of idle expiry; a cart is dropped at most this much later than its timeout. */
+        public Duration getExpiryTick() {
+            return expiryTick;
+        }
+
+        public void setExpiryTick(Duration expiryTick) {
+            this.expiryTick = expiryTick;
+        }
+
+        public int getMaxLines() {
+            return maxLines;
+        }
+
+        public void setMaxLines(int maxLines) {
+            this.maxLines = maxLines;
+        }
+    }
+
+    public static class Orders {
+        private int queueCapacity = 8192;
+        private int batchSize = 256;
+
+        /** Orders waiting to be committed, rounded up to a power of two; checkouts are refused while it is full. */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /** At most this many queued orders are committed in one pass of the order writer. */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    public static class Idempotency {
+        private Duration ttl = Duration.ofHours(24);
+        private int maxKeys = 100_000;
+
+        /** How long a retry with the same {@code Idempotency-Key} is answered with the original product. */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * Keys remembered at most; beyond that the oldest are forgotten before their time, except those whose create
+         * is still in progress.
+         */
+        public int getMaxKeys() {
+            return maxKeys;
+        }
+
+        public void setMaxKeys(int maxKeys) {
+            this.maxKeys = maxKeys;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.onlinestore.repository;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, into which items are dropped by deadline. Scheduling is an
+ * append to one bucket and advancing the wheel drains only the buckets whose tick has passed, so the cost of expiry
+ * follows the number of items that fall due rather than the number scheduled, and no per-item task or heap of
+ * deadlines is kept. Deadlines further out than one turn of the wheel are clamped to the last bucket, and draining may
+ * hand over an item that was appended while its bucket was being emptied; so a drained item is only "possibly due",
+ * and the owner re-checks it and schedules it again if it is not.
+ *
+ * <p>{@link #schedule} may be called from any thread; {@link #advance} from one thread at a time.
+ */
+class TimerWheel<T> {
+    private final ConcurrentLinkedQueue<T>[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    // the last tick whose bucket has been drained
+    private volatile long processed;
+
+    TimerWheel(long spanMillis, long tickMillis, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        long ticks = Math.max(2, spanMillis / this.tickMillis + 2);
+        int size = Integer.highestOneBit((int) Math.min(1 << 30, ticks) - 1) << 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ConcurrentLinkedQueue<T>[] buckets = new ConcurrentLinkedQueue[size];
+        this.buckets = buckets;
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.processed = nowMillis / this.tickMillis;
+    }
+
+    /** Hands {@code item} to {@link #advance} once {@code deadlineMillis} has passed, or earlier. */
+    void schedule(T item, long deadlineMillis) {
+        long current = processed;
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        tick = Math.max(current + 1, Math.min(tick, current + mask));
+        buckets[(int) tick & mask].add(item);
+    }
+
+    /** Drains every bucket up to {@code nowMillis}, passing each item to {@code due}. */
+    void advance(long nowMillis, Consumer<T> due) {
+        long now = nowMillis / tickMillis;
+        for (long tick = processed + 1; tick <= now; tick++) {
+            processed = tick;
+            ConcurrentLinkedQueue<T> bucket = buckets[(int) tick & mask];
+            for (T item; (item = bucket.poll()) != null; ) {
+                due.accept(item);
+            }
+        }
+    }
+}
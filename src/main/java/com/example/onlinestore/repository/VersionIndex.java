@@ -0,0 +1,97 @@
+package com.example.onlinestore.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Secondary index from version to product id, so that "what changed since version N" costs a seek plus a walk over
+ * the answer. Every live product is indexed under its current version; a delete leaves a tombstone under the version
+ * it was logged with. Tombstones are capped: beyond the cap the oldest are dropped, and the version of the newest
+ * dropped one becomes the horizon below which deletes can no longer be reported. Callers keep the index in step with
+ * the store under the repository's per-id write lock.
+ */
+class VersionIndex {
+    record Entry(long version, long id, boolean deleted) {}
+
+    private final ConcurrentSkipListMap<Long, Long> live = new ConcurrentSkipListMap<>();
+    // the version each live id is indexed under, since the stored object may already carry a newer one
+    private final ConcurrentLongHashMap<Long> indexed = new ConcurrentLongHashMap<>();
+    private final ConcurrentSkipListMap<Long, Long> tombstones = new ConcurrentSkipListMap<>();
+    private final AtomicInteger tombstoneCount = new AtomicInteger();
+    private final AtomicLong horizon = new AtomicLong();
+    private final int maxTombstones;
+
+    VersionIndex(int maxTombstones) {
+        this.maxTombstones = Math.max(1, maxTombstones);
+    }
+
+    void put(long id, long version) {
+        Long previous = indexed.put(id, version);
+        if (previous != null) {
+            if (previous == version) {
+                return;
+            }
+            live.remove(previous);
+        }
+        live.put(version, id);
+    }
+
+    void remove(long id) {
+        Long previous = indexed.remove(id);
+        if (previous != null) {
+            live.remove(previous);
+        }
+    }
+
+    void tombstone(long id, long version) {
+        if (tombstones.put(version, id) != null) {
+            return;
+        }
+        if (tombstoneCount.incrementAndGet() > maxTombstones) {
+            Map.Entry<Long, Long> oldest = tombstones.pollFirstEntry();
+            if (oldest != null) {
+                tombstoneCount.decrementAndGet();
+                raiseHorizon(oldest.getKey());
+            }
+        }
+    }
+
+    /** Deletes at or below {@code version} are no longer (or never were) recorded. */
+    void raiseHorizon(long version) {
+        horizon.accumulateAndGet(version, Math::max);
+    }
+
+    long horizon() {
+        return horizon.get();
+    }
+
+    /**
+     * Up to {@code limit} live entries and tombstones with {@code after < version <= until}, in version order;
+     * weakly consistent.
+     */
+    List<Entry> range(long after, long until, int limit) {
+        List<Entry> entries = new ArrayList<>();
+        if (after >= until) {
+            return entries;
+        }
+        Iterator<Map.Entry<Long, Long>> saved = live.subMap(after, false, until, true).entrySet().iterator();
+        Iterator<Map.Entry<Long, Long>> deleted = tombstones.subMap(after, false, until, true).entrySet().iterator();
+        Map.Entry<Long, Long> s = saved.hasNext() ? saved.next() : null;
+        Map.Entry<Long, Long> d = deleted.hasNext() ? deleted.next() : null;
+        while (entries.size() < limit && (s != null || d != null)) {
+            if (d == null || (s != null && s.getKey() < d.getKey())) {
+                entries.add(new Entry(s.getKey(), s.getValue(), false));
+                s = saved.hasNext() ? saved.next() : null;
+            } else {
+                entries.add(new Entry(d.getKey(), d.getValue(), true));
+                d = deleted.hasNext() ? deleted.next() : null;
+            }
+        }
+        return entries;
+    }
+}
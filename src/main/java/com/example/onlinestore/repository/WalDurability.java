@@ -0,0 +1,13 @@
+package com.example.onlinestore.repository;
+
+/**
+ * How long a write waits before {@link ProductRepository#save} or {@link ProductRepository#deleteById} returns.
+ */
+public enum WalDurability {
+    /** Return as soon as the record is queued; the log writer forces to disk every flush interval. */
+    ASYNC,
+    /** Return once the record has been handed to the operating system (survives a process crash). */
+    WRITE,
+    /** Return once the record has been fsynced (survives a machine crash). Concurrent writers share one fsync. */
+    FSYNC
+}
@@ -0,0 +1,429 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only redo log for {@link ProductRepository}. Writers only serialize their record and queue it; a single
+ * writer thread drains everything queued since its last pass into one write (and at most one fsync), so the cost of
+ * forcing the log is shared by every writer that arrived while the previous batch was being flushed.
+ *
+ * <p>The log is split into numbered segment files. {@link #rotate()} starts a new segment so that everything before
+ * it can be dropped with {@link #deleteSegmentsBefore} once a {@link Snapshots snapshot} covers it.
+ *
+ * <p>Each record is {@code [int length][int crc32c][payload]}, where the payload starts with an op byte. Replay stops
+ * at the first short or corrupt record, which is where a crash interrupted the last write, and truncates the tail so
+ * that new records follow valid ones.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "products-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int HEADER_BYTES = 8;
+    // queued in place of a record to make the writer switch segments at exactly that point in the log
+    private static final byte[] ROTATE = new byte[0];
+
+    /** Callback for {@link #replay}. */
+    public interface Replay {
+        void put(Product p);
+
+        void delete(long id, long version);
+    }
+
+    private final Path directory;
+    private final WalDurability durability;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+    // owned by the writer thread once replay() has returned
+    private FileChannel channel;
+    private long writerSegment;
+
+    // request threads wait on these, so they are not monitors: a virtual thread parked in Object.wait() would pin
+    // its carrier for the whole group commit
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+    // everything below is guarded by "lock"
+    private List<byte[]> pending = new ArrayList<>();
+    private boolean rotationPending;
+    private long segment;
+    private long appendedLsn;
+    private long writtenLsn;
+    private long syncedLsn;
+    private IOException failure;
+    private boolean closed;
+
+    public WriteAheadLog(Path directory, WalDurability durability, Duration flushInterval) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.durability = durability;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Feeds every intact record from segment {@code fromSegment} onwards to {@code target} in log order, discards
+     * older segments and positions the log for appending. Must be called once, before the first append.
+     *
+     * @throws IOException if a segment other than the last ends in a short or corrupt record: only the last one can
+     *                     have been cut off by a crash, and replaying newer segments over the gap would lose writes
+     */
+    public void replay(long fromSegment, Replay target) throws IOException {
+        TreeMap<Long, Path> segments = listSegments();
+        deleteSegmentsBefore(segments, fromSegment);
+        long last = segments.isEmpty() ? fromSegment : Math.max(fromSegment, segments.lastKey());
+        for (var entry : segments.entrySet()) {
+            try (FileChannel in = FileChannel.open(entry.getValue(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long valid = replay(in, target);
+                if (entry.getKey() == last) {
+                    in.truncate(valid);
+                } else if (valid != in.size()) {
+                    throw new IOException("write-ahead log segment " + entry.getValue() + " is damaged at byte "
+                            + valid + " of " + in.size() + ", before the end of the log");
+                }
+            }
+        }
+        channel = openSegment(last);
+        channel.position(channel.size());
+        writerSegment = last;
+        segment = last;
+        writer.start();
+    }
+
+    public long appendPut(Product p) {
+        byte[] name = encodeName(p);
+        ByteBuffer buf = allocate(1 + encodedSize(name));
+        buf.put(OP_PUT);
+        encode(buf, p, name);
+        return append(buf.array());
+    }
+
+    /** Logs the deletion of {@code id}, which the store recorded as the change with the given version. */
+    public long appendDelete(long id, long version) {
+        ByteBuffer buf = allocate(1 + 8 + 8);
+        buf.put(OP_DELETE).putLong(id).putLong(version);
+        return append(buf.array());
+    }
+
+    /**
+     * Blocks until the record with the given sequence number meets the configured durability level.
+     *
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void await(long lsn) {
+        if (durability != WalDurability.ASYNC) {
+            awaitWritten(lsn, durability == WalDurability.FSYNC);
+        }
+    }
+
+    /**
+     * Closes the current segment and directs all later appends to a new one. Every record appended before this call
+     * is in a segment numbered below the returned one, and those segments are synced and closed when it returns.
+     */
+    public long rotate() {
+        long next;
+        long lsn;
+        lock.lock();
+        try {
+            lsn = enqueue(ROTATE);
+            rotationPending = true;
+            next = ++segment;
+        } finally {
+            lock.unlock();
+        }
+        awaitWritten(lsn, true);
+        return next;
+    }
+
+    /**
+     * Removes segments that a snapshot has made redundant. Only segment numbers returned by {@link #rotate()} are
+     * safe to pass here, since older segments are guaranteed to be closed.
+     */
+    public void deleteSegmentsBefore(long segmentNumber) throws IOException {
+        deleteSegmentsBefore(listSegments(), segmentNumber);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    static byte[] encodeName(Product p) {
+        return p.getName() == null ? null : p.getName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Size of a product as written by {@link #encode}; the snapshot format reuses the same encoding. */
+    static int encodedSize(byte[] name) {
+        return 8 + 8 + 8 + 4 + (name == null ? 0 : name.length);
+    }
+
+    static void encode(ByteBuffer buf, Product p, byte[] name) {
+        buf.putLong(p.getId()).putDouble(p.getPrice()).putLong(p.getVersion());
+        if (name == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(name.length).put(name);
+        }
+    }
+
+    /** Reads a product written by {@link #encode}. */
+    static Product decode(ByteBuffer buf) {
+        long id = buf.getLong();
+        double price = buf.getDouble();
+        long version = buf.getLong();
+        int nameLength = buf.getInt();
+        String name = null;
+        if (nameLength >= 0) {
+            byte[] bytes = new byte[nameLength];
+            buf.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        Product p = new Product(id, name, price);
+        p.setVersion(version);
+        return p;
+    }
+
+    private long replay(FileChannel in, Replay target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        long position = 0;
+        long size = in.size();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            in.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            in.read(payload, position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            byte op = payload.get();
+            switch (op) {
+                case OP_PUT -> target.put(decode(payload));
+                case OP_DELETE -> target.delete(payload.getLong(), payload.getLong());
+                default -> throw new IOException("unknown record type " + op + " in write-ahead log");
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                    segments.put(Long.parseLong(number), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    private static void deleteSegmentsBefore(TreeMap<Long, Path> segments, long limit) throws IOException {
+        for (Path file : segments.headMap(limit).values()) {
+            Files.deleteIfExists(file);
+        }
+        segments.headMap(limit).clear();
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void awaitWritten(long lsn, boolean synced) {
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            while ((synced ? syncedLsn : writtenLsn) < lsn) {
+                if (failure != null) {
+                    throw new UncheckedIOException("write-ahead log failed", failure);
+                }
+                try {
+                    progress.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ByteBuffer allocate(int payloadBytes) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        buf.position(HEADER_BYTES);
+        return buf;
+    }
+
+    private long append(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+        ByteBuffer.wrap(record).putInt(record.length - HEADER_BYTES).putInt((int) crc.getValue());
+        return enqueue(record);
+    }
+
+    private long enqueue(byte[] record) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("write-ahead log failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("write-ahead log is closed");
+            }
+            pending.add(record);
+            if (pending.size() == 1) {
+                work.signal();
+            }
+            return ++appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        long lastSync = System.nanoTime();
+        while (true) {
+            List<byte[]> batch;
+            long batchLsn;
+            boolean rotate;
+            boolean stop;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    work.awaitUninterruptibly();
+                }
+                if (durability == WalDurability.ASYNC) {
+                    // let an interval's worth of writes pile up so the disk sees one write and one fsync for them
+                    long remaining;
+                    while (!closed && !rotationPending
+                            && (remaining = flushIntervalNanos - (System.nanoTime() - lastSync)) > 0) {
+                        try {
+                            work.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchLsn = appendedLsn;
+                rotate = rotationPending;
+                rotationPending = false;
+                stop = closed;
+            } finally {
+                lock.unlock();
+            }
+            boolean sync = durability != WalDurability.WRITE || rotate || stop;
+            try {
+                write(batch);
+                if (sync) {
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                writtenLsn = batchLsn;
+                if (sync) {
+                    syncedLsn = batchLsn;
+                }
+                progress.signalAll();
+                if (stop && pending.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(List<byte[]> batch) throws IOException {
+        int start = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) == ROTATE) {
+                write(batch, start, i);
+                start = i + 1;
+                channel.force(false);
+                channel.close();
+                channel = openSegment(++writerSegment);
+            }
+        }
+        write(batch, start, batch.size());
+    }
+
+    private void write(List<byte[]> batch, int from, int to) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[to - from];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(from + i));
+        }
+        int offset = 0;
+        while (offset < buffers.length) {
+            channel.write(buffers, offset, buffers.length - offset);
+            while (offset < buffers.length && !buffers[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+    }
+}
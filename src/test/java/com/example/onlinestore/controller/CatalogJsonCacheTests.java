@@ -0,0 +1,53 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogJsonCacheTests {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void incrementalRefreshMatchesFullEncoding() throws Exception {
+        ProductRepository repo = new ProductRepository();
+        CatalogJsonCache cache = new CatalogJsonCache(repo, mapper);
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            repo.save(new Product(null, "P" + i, i));
+        }
+        assertMatches(repo, cache);
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                long id = 1 + random.nextInt(6000);
+                switch (random.nextInt(3)) {
+                    case 0 -> repo.deleteById(id);
+                    case 1 -> repo.save(new Product(id, "R" + round + "-" + i, random.nextInt(100)));
+                    default -> repo.save(new Product(null, "N" + round + "-" + i, 1.5));
+                }
+            }
+            assertMatches(repo, cache);
+        }
+        // emptying the front of the catalog leaves later segments to cover it
+        for (long id = 1; id <= 3000; id++) {
+            repo.deleteById(id);
+        }
+        assertMatches(repo, cache);
+        repo.save(new Product(1L, "Back", 2.0));
+        assertMatches(repo, cache);
+    }
+
+    private void assertMatches(ProductRepository repo, CatalogJsonCache cache) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cache.write(repo.version(), response);
+        String expected = mapper.writeValueAsString(repo.findAll());
+        assertEquals(expected, response.getContentAsString());
+        assertEquals(response.getContentAsByteArray().length, response.getContentLengthLong());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTests {
+
+    @Test
+    void writesArePushedOnlyAsFarAsTheSubscriberAsked() throws Exception {
+        ProductRepository repo = new ProductRepository();
+        ChangeFeed feed = new ChangeFeed(repo);
+        BlockingQueue<ServerSentEvent<Object>> received = new LinkedBlockingQueue<>();
+        BaseSubscriber<ServerSentEvent<Object>> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // nothing requested yet
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<Object> event) {
+                received.add(event);
+            }
+        };
+        feed.stream(null).subscribe(subscriber);
+        long head = repo.changeHead();
+
+        repo.save(new Product(null, "A", 1.0));
+        repo.save(new Product(null, "B", 2.0));
+        repo.deleteById(1L);
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+
+        subscriber.request(2);
+        assertEquals(Long.toString(head + 1), next(received).id());
+        assertEquals("saved", next(received).event());
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+
+        subscriber.request(5);
+        ServerSentEvent<Object> deleted = next(received);
+        assertEquals("deleted", deleted.event());
+        assertEquals(Long.toString(head + 3), deleted.id());
+        repo.save(new Product(null, "C", 3.0));
+        assertEquals(Long.toString(head + 4), next(received).id());
+        subscriber.dispose();
+    }
+
+    private static ServerSentEvent<Object> next(BlockingQueue<ServerSentEvent<Object>> received) throws Exception {
+        ServerSentEvent<Object> event = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event);
+        return event;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.StoreProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTests {
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    void aRetryWaitsForAndReplaysTheFirstAttempt() {
+        IdempotencyCache cache = cache(640);
+        IdempotencyCache.Claim first = cache.claim("k", new Product(null, "A", 1.0));
+        assertTrue(first.owner());
+
+        IdempotencyCache.Claim retry = cache.claim("k", new Product(null, "A", 1.0));
+        assertFalse(retry.owner());
+        assertFalse(retry.result().isDone());
+        Product saved = new Product(7L, "A", 1.0);
+        first.result().complete(saved);
+        assertSame(saved, retry.result().join());
+        assertSame(saved, cache.claim("k", new Product(null, "A", 1.0)).result().join());
+    }
+
+    @Test
+    void aKeyReusedForAnotherProductIsRefused() {
+        IdempotencyCache cache = cache(640);
+        cache.claim("k", new Product(null, "A", 1.0)).result().complete(new Product(7L, "A", 1.0));
+
+        assertEquals(422, assertThrows(ResponseStatusException.class,
+                () -> cache.claim("k", new Product(null, "B", 1.0))).getStatusCode().value());
+        assertEquals(400, assertThrows(ResponseStatusException.class,
+                () -> cache.claim("x".repeat(256), new Product(null, "A", 1.0))).getStatusCode().value());
+    }
+
+    @Test
+    void aFailedAttemptGivesItsKeyUp() {
+        IdempotencyCache cache = cache(640);
+        cache.claim("f", new Product(null, "F", 1.0)).result().completeExceptionally(new IllegalStateException());
+
+        assertTrue(cache.claim("f", new Product(null, "F", 1.0)).owner());
+    }
+
+    @Test
+    void aSettledKeyExpiresAfterTheTtl() {
+        IdempotencyCache cache = cache(640);
+        cache.claim("k", new Product(null, "A", 1.0)).result().complete(new Product(7L, "A", 1.0));
+
+        clock.addAndGet(TTL.toMillis() - 1);
+        assertFalse(cache.claim("k", new Product(null, "A", 1.0)).owner());
+        clock.addAndGet(1);
+        assertTrue(cache.claim("k", new Product(null, "A", 1.0)).owner());
+    }
+
+    @Test
+    void evictionDropsTheOldestSettledKeysAndKeepsTheSizeBounded() {
+        IdempotencyCache cache = cache(640);
+        for (int i = 0; i < 100_000; i++) {
+            cache.claim("key-" + i, new Product(null, "P", i)).result().complete(new Product((long) i, "P", i));
+        }
+
+        assertTrue(cache.size() <= 640);
+        assertTrue(cache.claim("key-0", new Product(null, "P", 0)).owner());
+        assertFalse(cache.claim("key-99999", new Product(null, "P", 99_999)).owner());
+    }
+
+    @Test
+    void evictionNeverDropsAKeyWhoseCreateIsInProgress() {
+        // one key per segment, so every claim below competes with the pending one for its segment's only place
+        IdempotencyCache cache = cache(64);
+        IdempotencyCache.Claim pending = cache.claim("pending", new Product(null, "A", 1.0));
+        for (int i = 0; i < 10_000; i++) {
+            cache.claim("key-" + i, new Product(null, "P", i)).result().complete(new Product((long) i, "P", i));
+        }
+        clock.addAndGet(TTL.toMillis() * 2);
+        cache.claim("after-expiry", new Product(null, "P", 0));
+
+        IdempotencyCache.Claim retry = cache.claim("pending", new Product(null, "A", 1.0));
+        assertFalse(retry.owner());
+        assertSame(pending.result(), retry.result());
+        pending.result().complete(new Product(1L, "A", 1.0));
+        assertTrue(cache.size() <= 64 + 2);
+    }
+
+    private IdempotencyCache cache(int maxKeys) {
+        StoreProperties properties = new StoreProperties();
+        properties.getIdempotency().setTtl(TTL);
+        properties.getIdempotency().setMaxKeys(maxKeys);
+        return new IdempotencyCache(properties, clock::get);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductRepository repo;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void exportWritesOneProductPerLineInIdOrder() throws Exception {
+        long id = create("{\"name\":\"Export \\u00e9\",\"price\":2.5}");
+
+        String body = mvc.perform(get("/api/products/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ProductController.NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.endsWith("\n"));
+        List<Long> ids = new ArrayList<>();
+        JsonNode exported = null;
+        for (String line : body.split("\n")) {
+            JsonNode product = mapper.readTree(line);
+            assertTrue(product.isObject(), line);
+            ids.add(product.get("id").asLong());
+            if (product.get("id").asLong() == id) {
+                exported = product;
+            }
+        }
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertNotNull(exported);
+        assertEquals("Export \u00e9", exported.get("name").asText());
+        assertEquals(2.5, exported.get("price").asDouble());
+    }
+
+    @Test
+    void productETagAnswersRevalidationWith304UntilTheProductChanges() throws Exception {
+        long id = create("{\"name\":\"Tagged\",\"price\":1.0}");
+        String etag = mvc.perform(get("/api/products/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/products/" + id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        create("{\"id\":" + id + ",\"name\":\"Retagged\",\"price\":1.0}");
+        String changed = mvc.perform(get("/api/products/" + id).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Retagged"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void catalogETagCoversListAndPagesUntilAnyProductChanges() throws Exception {
+        String etag = mvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(get("/api/products").param("limit", "1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        create("{\"name\":\"Catalog change\",\"price\":1.0}");
+        mvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'Catalog change')]").exists());
+        mvc.perform(get("/api/products").param("limit", "1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1));
+    }
+
+    @Test
+    void cachedJsonMatchesTheStoreAfterUpdates() throws Exception {
+        long id = create("{\"name\":\"Cached\",\"price\":3.0}");
+        mvc.perform(get("/api/products/" + id)).andExpect(jsonPath("$.name").value("Cached"));
+        mvc.perform(get("/api/products")).andExpect(status().isOk());
+
+        create("{\"id\":" + id + ",\"name\":\"Recached\",\"price\":4.0}");
+        String single = mvc.perform(get("/api/products/" + id))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(mapper.readTree(mapper.writeValueAsString(repo.findById(id).orElseThrow())),
+                mapper.readTree(single));
+        mvc.perform(get("/api/products").param("ids", Long.toString(id)))
+                .andExpect(jsonPath("$[0].name").value("Recached"))
+                .andExpect(jsonPath("$[0].price").value(4.0));
+
+        String catalog = mvc.perform(get("/api/products"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(mapper.readTree(mapper.writeValueAsString(repo.findAll())), mapper.readTree(catalog));
+    }
+
+    @Test
+    void bulkJsonFailsBadItemsAloneAndStopsAtMalformedJson() throws Exception {
+        long id = create("{\"name\":\"Bulk target\",\"price\":1.0}");
+        String body = "[{\"name\":\"Bulk new\",\"price\":2.0},"
+                + "{\"id\":" + id + ",\"name\":\"Bulk updated\",\"price\":3.0},"
+                + "{\"name\":\"Bad price\",\"price\":\"cheap\"},"
+                + "{\"name\":\"Cut off\",\"price\":";
+
+        mvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("UPDATED"))
+                .andExpect(jsonPath("$[1].id").value(id))
+                .andExpect(jsonPath("$[2].status").value("FAILED"))
+                .andExpect(jsonPath("$[2].error").isNotEmpty())
+                .andExpect(jsonPath("$[3].index").value(3))
+                .andExpect(jsonPath("$[3].status").value("FAILED"));
+        assertEquals("Bulk updated", repo.findById(id).orElseThrow().getName());
+
+        mvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"x\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkLinesFailOnlyTheMalformedLine() throws Exception {
+        String body = "{\"name\":\"Line one\",\"price\":1.0}\n"
+                + "{\"name\": oops}\n"
+                + "\n"
+                + "{\"name\":\"Line three\",\"price\":3.0}\n";
+
+        String results = mvc.perform(post("/api/products/bulk")
+                        .contentType(ProductController.NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].id").doesNotExist())
+                .andExpect(jsonPath("$[2].status").value("CREATED"))
+                .andReturn().getResponse().getContentAsString();
+        long third = mapper.readTree(results).get(2).get("id").asLong();
+        assertEquals("Line three", repo.findById(third).orElseThrow().getName());
+    }
+
+    @Test
+    void requestAllocationIsRecordedPerMethodAndUriPattern() throws Exception {
+        long id = create("{\"name\":\"Measured\",\"price\":1.0}");
+        DistributionSummary summary = registry.summary("http.server.requests.allocation",
+                "method", "GET", "uri", "/api/products/{id}");
+        long before = summary.count();
+
+        mvc.perform(get("/api/products/" + id)).andExpect(status().isOk());
+        mvc.perform(get("/api/products/" + id)).andExpect(status().isOk());
+
+        assertEquals(before + 2, summary.count());
+        assertSame(summary, registry.find("http.server.requests.allocation")
+                .tags("method", "GET", "uri", "/api/products/{id}").summary());
+    }
+
+    @Test
+    void explicitIdsOutsideTheValidRangeAreBadRequests() throws Exception {
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":" + Long.MAX_VALUE + ",\"name\":\"Far\",\"price\":1.0}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":0,\"name\":\"Zero\",\"price\":1.0}"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/products/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":-4,\"name\":\"Negative\",\"price\":1.0},"
+                                + "{\"name\":\"Fine\",\"price\":1.0}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].id").value(lessThan(1000)));
+    }
+
+    @Test
+    void multiGetReturnsRequestedProductsInOrderAndRefusesPaging() throws Exception {
+        mvc.perform(get("/api/products").param("ids", "2,999,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1));
+        mvc.perform(get("/api/products").param("ids", "1").param("limit", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void priceListingPagesWithACursorAndRefusesBadBounds() throws Exception {
+        long first = create("{\"name\":\"Lamp\",\"price\":7001.5}");
+        long second = create("{\"name\":\"Lamp shade\",\"price\":7001.5}");
+        long third = create("{\"name\":\"Floor lamp\",\"price\":7002.0}");
+
+        String body = mvc.perform(get("/api/products").param("sort", "price")
+                        .param("minPrice", "7000").param("maxPrice", "8000").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(first))
+                .andExpect(jsonPath("$.items[1].id").value(second))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = mapper.readTree(body).get("nextCursor").asText();
+        mvc.perform(get("/api/products").param("sort", "price")
+                        .param("minPrice", "7000").param("maxPrice", "8000").param("limit", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].id").value(third))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mvc.perform(get("/api/products").param("sort", "price").param("minPrice", "NaN"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/products").param("sort", "price").param("minPrice", "9").param("maxPrice", "1"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/products").param("sort", "price").param("cursor", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long create(String json) throws Exception {
+        String body = mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body).get("id").asLong();
+    }
+}
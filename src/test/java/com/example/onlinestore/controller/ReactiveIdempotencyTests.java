@@ -0,0 +1,57 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.ReactiveProductRepository;
+import com.example.onlinestore.repository.StoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveIdempotencyTests {
+
+    @Test
+    void aClientLeavingMidSaveKeepsTheKeyForItsRetry() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ProductRepository repo = new ProductRepository() {
+            volatile boolean gated = true;
+
+            @Override
+            public Product save(Product p) {
+                if (gated) {
+                    gated = false;
+                    saving.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.save(p);
+            }
+        };
+        int before = repo.findAll().size();
+        ReactiveProductController controller = new ReactiveProductController(new ReactiveProductRepository(repo),
+                repo, new ObjectMapper(), null, null, new IdempotencyCache(new StoreProperties()));
+
+        Disposable abandoned = controller.create(new Product(null, "Tea", 3.0), "key").subscribe();
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        abandoned.dispose();
+        var retry = controller.create(new Product(null, "Tea", 3.0), "key").toFuture();
+        release.countDown();
+
+        Product created = retry.get(5, TimeUnit.SECONDS).getBody();
+        assertNotNull(created);
+        assertEquals(before + 1, repo.findAll().size());
+        assertEquals("Tea", repo.findById(created.getId()).orElseThrow().getName());
+        assertEquals(created.getId(), controller.create(new Product(null, "Tea", 3.0), "key")
+                .block(Duration.ofSeconds(5)).getBody().getId());
+    }
+}
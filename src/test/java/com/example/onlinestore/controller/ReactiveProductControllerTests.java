@@ -0,0 +1,50 @@
+package com.example.onlinestore.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveProductControllerTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void servesTheProductApiWithETags() {
+        String etag = client.get().uri("/api/products").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].name").isEqualTo("Sample Product A")
+                .returnResult().getResponseHeaders().getETag();
+        client.get().uri("/api/products").ifNoneMatch(etag).exchange()
+                .expectStatus().isNotModified();
+
+        client.post().uri("/api/products").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\":\"Green Tea\",\"price\":3}").exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isEqualTo(3);
+        client.get().uri("/api/products").ifNoneMatch(etag).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(3);
+        client.get().uri("/api/products/3").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Green Tea");
+        client.get().uri("/api/products/autocomplete?prefix=tea").exchange()
+                .expectBody().jsonPath("$[0]").isEqualTo("Green Tea");
+        client.get().uri("/api/products?ids=3,1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(3).jsonPath("$[1].id").isEqualTo(1);
+        client.get().uri("/api/products?ids=1&limit=5").exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/products?sort=price&maxPrice=3&limit=1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.items[0].name").isEqualTo("Green Tea")
+                .jsonPath("$.nextCursor").doesNotExist();
+        client.get().uri("/api/products?sort=price&maxPrice=NaN").exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.onlinestore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartStoreTests {
+
+    @Test
+    void idleCartsExpireAndUsedOnesLive() {
+        StoreProperties properties = new StoreProperties();
+        properties.getCarts().setIdleTimeout(Duration.ofSeconds(10));
+        properties.getCarts().setExpiryTick(Duration.ofSeconds(1));
+        properties.getCarts().setMaxLines(2);
+        AtomicLong clock = new AtomicLong(1_000_000);
+        CartStore carts = new CartStore(properties, clock::get, false);
+
+        carts.setQuantity("idle", 1L, 1);
+        carts.setQuantity("busy", 1L, 2);
+        carts.setQuantity("busy", 2L, 3);
+        assertThrows(CartStore.FullException.class, () -> carts.setQuantity("busy", 3L, 1));
+        assertArrayEquals(new long[] {1L, 2L}, carts.get("busy").productIds());
+
+        for (int s = 0; s < 15; s++) {
+            clock.addAndGet(1000);
+            carts.get("busy");
+            carts.expire();
+        }
+        assertNull(carts.get("idle"));
+        assertEquals(1, carts.size());
+        assertArrayEquals(new int[] {3}, carts.setQuantity("busy", 1L, 0).quantities());
+
+        clock.addAndGet(11_000);
+        carts.expire();
+        assertNull(carts.get("busy"));
+        assertEquals(0, carts.size());
+        // an expired session starts over with an empty cart
+        assertEquals(1, carts.setQuantity("busy", 5L, 1).productIds().length);
+    }
+
+    @Test
+    void detachHandsACartToOneCallerAndRestoreMergesItBack() {
+        StoreProperties properties = new StoreProperties();
+        properties.getCarts().setMaxLines(3);
+        CartStore carts = new CartStore(properties, () -> 0, false);
+        carts.setQuantity("s", 1L, 2);
+        carts.setQuantity("s", 2L, 1);
+
+        CartStore.Contents detached = carts.detach("s");
+        assertArrayEquals(new long[] {1L, 2L}, detached.productIds());
+        assertNull(carts.detach("s"));
+        assertNull(carts.get("s"));
+
+        // changed while checking out: the newer quantity wins and the rest is put back as far as it fits
+        carts.setQuantity("s", 2L, 5);
+        carts.setQuantity("s", 3L, 1);
+        carts.restore("s", detached);
+        CartStore.Contents restored = carts.get("s");
+        assertArrayEquals(new long[] {2L, 3L, 1L}, restored.productIds());
+        assertArrayEquals(new int[] {5, 1, 2}, restored.quantities());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.onlinestore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongHashMapTests {
+
+    @Test
+    void putGetRemoveAcrossResizes() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        for (long k = -5000; k < 5000; k++) {
+            assertNull(map.put(k, "v" + k));
+        }
+        assertEquals("v-17", map.put(-17, "w"));
+        for (long k = -5000; k < 5000; k += 2) {
+            assertNotNull(map.remove(k));
+        }
+        assertNull(map.remove(-5000));
+        assertEquals(5000, map.size());
+        assertEquals("w", map.get(-17));
+        assertNull(map.get(-16));
+        assertNull(map.put(-16, "back"));
+        assertEquals("back", map.get(-16));
+    }
+
+    @Test
+    void concurrentWritersOnDisjointKeysLoseNothing() throws Exception {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long base = t * 100_000L;
+                futures.add(pool.submit(() -> {
+                    for (long k = base; k < base + 20_000; k++) {
+                        map.put(k, k);
+                        assertEquals(k, map.get(k));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(160_000, map.size());
+        for (int t = 0; t < 8; t++) {
+            assertEquals(t * 100_000L + 19_999, map.get(t * 100_000L + 19_999));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapProductStoreTests {
+
+    @Test
+    void scansInIdOrderAcrossPagesSparseAndNegativeIds() {
+        HeapProductStore store = new HeapProductStore();
+        for (long id = 3000; id >= 1; id--) {
+            store.put(new Product(id, "P" + id, id));
+        }
+        for (long id : new long[] {Long.MIN_VALUE, -5, 0, 1L << 40, Long.MAX_VALUE}) {
+            store.put(new Product(id, "P" + id, 0));
+        }
+        for (long id = 2; id <= 3000; id++) {
+            if (id % 1000 != 0) {
+                store.remove(id);
+            }
+        }
+
+        List<Long> expected = List.of(Long.MIN_VALUE, -5L, 0L, 1L, 1000L, 2000L, 3000L, 1L << 40, Long.MAX_VALUE);
+        assertEquals(expected, ids(store.values()));
+        assertEquals(expected.size(), store.size());
+        assertEquals(List.of(0L, 1L, 1000L), ids(store.valuesAfter(-5L)).subList(0, 3));
+        assertEquals(List.of(2000L, 3000L, 1L << 40, Long.MAX_VALUE), ids(store.valuesAfter(1000L)));
+        assertEquals(List.of(), ids(store.valuesAfter(Long.MAX_VALUE)));
+        assertEquals(List.of(1L << 40, Long.MAX_VALUE), ids(store.valuesAfter(3000L)));
+    }
+
+    @Test
+    void replacingAProductKeepsOneEntryAndRemovedOnesLeaveTheScan() {
+        HeapProductStore store = new HeapProductStore();
+        assertNull(store.put(new Product(7L, "Tea", 3.5)));
+        assertEquals("Tea", store.put(new Product(7L, "Green tea", 4.0)).getName());
+        assertEquals(List.of(7L), ids(store.values()));
+
+        assertEquals("Green tea", store.remove(7L).getName());
+        assertNull(store.remove(7L));
+        assertEquals(List.of(), ids(store.values()));
+        assertNull(store.put(new Product(7L, "Tea", 3.5)));
+        assertEquals(List.of(7L), ids(store.values()));
+    }
+
+    private static List<Long> ids(Iterable<Product> products) {
+        List<Long> ids = new ArrayList<>();
+        products.forEach(p -> ids.add(p.getId()));
+        return ids;
+    }
+}
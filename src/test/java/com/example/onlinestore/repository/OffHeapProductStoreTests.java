@@ -0,0 +1,55 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapProductStoreTests {
+
+    @Test
+    void storesUpdatesAndRemovesProducts() {
+        OffHeapProductStore store = new OffHeapProductStore(16);
+        assertNull(store.put(new Product(1L, "Tea", 3.5)));
+        assertNull(store.put(new Product(2L, null, 1.0)));
+
+        Product previous = store.put(new Product(1L, "Green tea", 4.0));
+        assertEquals("Tea", previous.getName());
+        assertEquals("Green tea", store.get(1L).getName());
+        assertEquals(4.0, store.get(1L).getPrice());
+        assertNull(store.get(2L).getName());
+
+        assertEquals("Green tea", store.remove(1L).getName());
+        assertNull(store.get(1L));
+        assertNull(store.remove(1L));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void scansInIdOrderAcrossOutOfOrderInsertsAndCompaction() {
+        OffHeapProductStore store = new OffHeapProductStore(16);
+        for (long id = 10; id <= 50000; id += 10) {
+            store.put(new Product(id, "P" + id, id));
+        }
+        store.put(new Product(5L, "early", 0));
+        store.put(new Product(15L, "between", 0));
+        for (long id = 20; id <= 40000; id += 10) {
+            store.remove(id);
+        }
+
+        List<Long> ids = ids(store.values());
+        assertEquals(List.of(5L, 10L, 15L, 40010L), ids.subList(0, 4));
+        assertEquals(1003, ids.size());
+        assertEquals(List.of(49990L, 50000L), ids(store.valuesAfter(49980L)));
+        assertEquals("P40010", store.get(40010L).getName());
+    }
+
+    private static List<Long> ids(Iterable<Product> products) {
+        List<Long> ids = new ArrayList<>();
+        products.forEach(p -> ids.add(p.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.onlinestore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPipelineTests {
+
+    @Test
+    void concurrentOrdersSellAllOrNothing() throws Exception {
+        ProductRepository repo = new ProductRepository();
+        repo.setStock(1L, 1000);
+        repo.setStock(2L, 300);
+        StoreProperties properties = new StoreProperties();
+        properties.getOrders().setQueueCapacity(64);
+        properties.getOrders().setBatchSize(16);
+        OrderPipeline pipeline = new OrderPipeline(repo, properties);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<CompletableFuture<Long>>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    List<CompletableFuture<Long>> placed = new ArrayList<>();
+                    while (placed.size() < 100) {
+                        try {
+                            // two of product 1 and one of product 2: product 2 runs out first
+                            placed.add(pipeline.submit(new long[] {1L, 2L}, new int[] {2, 1}));
+                        } catch (OrderPipeline.BusyException e) {
+                            Thread.yield();
+                        }
+                    }
+                    return placed;
+                }));
+            }
+            Set<Long> ids = new HashSet<>();
+            int refused = 0;
+            for (Future<List<CompletableFuture<Long>>> f : futures) {
+                for (CompletableFuture<Long> order : f.get()) {
+                    try {
+                        assertTrue(ids.add(order.join()));
+                    } catch (CompletionException e) {
+                        OrderPipeline.OutOfStockException shortOf = (OrderPipeline.OutOfStockException) e.getCause();
+                        assertEquals(2L, shortOf.getProductId());
+                        refused++;
+                    }
+                }
+            }
+            assertEquals(300, ids.size());
+            assertEquals(500, refused);
+            assertEquals(400, repo.stock(1L).orElseThrow().getAvailable());
+            assertEquals(600, repo.stock(1L).orElseThrow().getSold());
+            assertEquals(0, repo.stock(2L).orElseThrow().getAvailable());
+            assertEquals(300, repo.stock(2L).orElseThrow().getSold());
+        } finally {
+            pool.shutdownNow();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void closeAnswersEveryOrderItAccepted() throws Exception {
+        ProductRepository repo = new ProductRepository();
+        repo.setStock(1L, 1_000_000);
+        OrderPipeline pipeline = new OrderPipeline(repo, new StoreProperties());
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<CompletableFuture<Long>>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    List<CompletableFuture<Long>> placed = new ArrayList<>();
+                    while (true) {
+                        try {
+                            placed.add(pipeline.submit(new long[] {1L}, new int[] {1}));
+                        } catch (OrderPipeline.BusyException e) {
+                            if (e.getMessage().contains("shut down")) {
+                                return placed;
+                            }
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(50);
+            pipeline.close();
+            long sold = 0;
+            for (Future<List<CompletableFuture<Long>>> f : futures) {
+                for (CompletableFuture<Long> order : f.get()) {
+                    try {
+                        order.get(10, TimeUnit.SECONDS);
+                        sold++;
+                    } catch (ExecutionException e) {
+                        assertInstanceOf(OrderPipeline.BusyException.class, e.getCause());
+                    }
+                }
+            }
+            assertEquals(sold, repo.stock(1L).orElseThrow().getSold());
+            assertThrows(OrderPipeline.BusyException.class, () -> pipeline.submit(new long[] {1L}, new int[] {1}));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.onlinestore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedIdSetTests {
+
+    @Test
+    void emptiedPagesAreDroppedAndComeBackOnTheNextAdd() {
+        OrderedIdSet ids = new OrderedIdSet();
+        for (long id = 0; id < 5000; id++) {
+            ids.add(id);
+        }
+        assertEquals(5, ids.pageCount());
+        for (long id = 0; id < 5000; id++) {
+            if (id != 4096) {
+                ids.remove(id);
+            }
+        }
+        assertEquals(1, ids.pageCount());
+        assertEquals(List.of(4096L), toList(ids.iteratorFrom(Long.MIN_VALUE)));
+
+        ids.add(10);
+        assertEquals(2, ids.pageCount());
+        assertEquals(List.of(10L, 4096L), toList(ids.iteratorFrom(Long.MIN_VALUE)));
+        ids.remove(4096);
+        ids.remove(10);
+        assertEquals(0, ids.pageCount());
+        assertEquals(List.of(), toList(ids.iteratorFrom(Long.MIN_VALUE)));
+    }
+
+    @Test
+    void addsRacingRemovalsThatEmptyTheSamePageAreNotLost() throws Exception {
+        OrderedIdSet ids = new OrderedIdSet();
+        int threads = 4;
+        int rounds = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                long id = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    // every thread churns its own id on page 0, which empties and refills it over and over
+                    for (int i = 0; i < rounds; i++) {
+                        ids.add(id);
+                        ids.remove(id);
+                    }
+                    ids.add(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(List.of(0L, 1L, 2L, 3L), toList(ids.iteratorFrom(Long.MIN_VALUE)));
+        assertEquals(1, ids.pageCount());
+    }
+
+    private static List<Long> toList(PrimitiveIterator.OfLong it) {
+        List<Long> out = new ArrayList<>();
+        it.forEachRemaining((long id) -> out.add(id));
+        return out;
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.model.ProductChanges;
+import com.example.onlinestore.model.Reservation;
+import com.example.onlinestore.model.Stock;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRepositoryTests {
+
+    @Test
+    void findPageWalksIdsInOrder() {
+        ProductRepository repo = new ProductRepository();
+        for (int i = 0; i < 5; i++) {
+            repo.save(new Product(null, "P" + i, i));
+        }
+
+        List<Product> first = repo.findPage(null, 3);
+        assertEquals(List.of(1L, 2L, 3L), first.stream().map(Product::getId).toList());
+
+        List<Product> second = repo.findPage(3L, 3);
+        assertEquals(List.of(4L, 5L, 6L), second.stream().map(Product::getId).toList());
+
+        assertTrue(repo.findPage(7L, 3).isEmpty());
+    }
+
+    @Test
+    void generatedIdsStartAboveExplicitOnes() {
+        ProductRepository repo = new ProductRepository();
+        repo.saveAll(List.of(new Product(10L, "Explicit", 1.0), new Product(null, "Generated", 2.0)));
+        assertEquals(11L, repo.findAll().get(3).getId());
+        Product next = repo.save(new Product(null, "Next", 3.0));
+        assertEquals(12L, next.getId());
+        assertEquals("Explicit", repo.findById(10L).orElseThrow().getName());
+    }
+
+    @Test
+    void explicitIdsOutsideTheValidRangeAreRefusedBeforeAnythingMoves() {
+        ProductRepository repo = new ProductRepository();
+        for (long id : new long[] {0, -1, ProductRepository.MAX_ID + 1, Long.MAX_VALUE}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> repo.saveAll(List.of(new Product(5L, "Valid", 1.0), new Product(id, "Invalid", 1.0))));
+        }
+        assertEquals(2, repo.findAll().size());
+        assertEquals(3L, repo.save(new Product(null, "Next", 1.0)).getId());
+        assertEquals(ProductRepository.MAX_ID, repo.save(new Product(ProductRepository.MAX_ID, "Top", 1.0)).getId());
+        assertEquals(ProductRepository.MAX_ID + 1, repo.save(new Product(null, "Above", 1.0)).getId());
+    }
+
+    @Test
+    void priceRangeFollowsPriceUpdatesAndDeletes() {
+        ProductRepository repo = new ProductRepository();
+        repo.save(new Product(null, "Cheap", 5.0));
+        repo.save(new Product(null, "Mid", 25.0));
+        Product moved = repo.findById(1L).orElseThrow();
+        moved.setPrice(24.0);
+        repo.save(moved);
+        repo.deleteById(2L);
+
+        List<String> names = repo.findByPriceRange(10, 30, 10).stream().map(Product::getName).toList();
+        assertEquals(List.of("Sample Product A", "Mid"), names);
+        assertEquals(1, repo.findByPriceRange(0, 100, 1).size());
+
+        repo.save(new Product(null, "Also mid", 24.0));
+        List<Long> resumed = repo.findByPriceRange(10, 30, 24.0, 1L, 10).stream().map(Product::getId).toList();
+        assertEquals(List.of(5L, 4L), resumed);
+        assertEquals(List.of(), repo.findByPriceRange(10, 30, 99.0, 1L, 10));
+    }
+
+    @Test
+    void searchRanksByRelevanceAndFollowsRenames() {
+        ProductRepository repo = new ProductRepository();
+        repo.save(new Product(null, "Green Tea", 3.0));
+        repo.save(new Product(null, "Green tea with jasmine and lemon", 4.0));
+        repo.save(new Product(null, "Black coffee", 2.0));
+
+        assertEquals(List.of(3L, 4L), repo.search("green TEA", 10).stream().map(Product::getId).toList());
+        assertEquals(List.of(5L), repo.search("coffee", 10).stream().map(Product::getId).toList());
+
+        repo.save(new Product(5L, "Black tea", 2.0));
+        repo.deleteById(3L);
+        assertTrue(repo.search("coffee", 10).isEmpty());
+        assertEquals(List.of(5L, 4L), repo.search("tea", 10).stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void autocompleteMatchesWordPrefixesAndFollowsUpdates() {
+        ProductRepository repo = new ProductRepository();
+        repo.save(new Product(null, "Green Tea", 3.0));
+        repo.save(new Product(null, "Green tea with jasmine", 4.0));
+        repo.save(new Product(null, "Greek yogurt", 2.0));
+        repo.save(new Product(null, "Green Tea", 3.5));
+
+        assertEquals(List.of("Green Tea", "Greek yogurt", "Green tea with jasmine"), repo.autocomplete("GRE", 10));
+        assertEquals(List.of("Green Tea", "Green tea with jasmine"), repo.autocomplete("tea", 10));
+        assertEquals(List.of("Green tea with jasmine"), repo.autocomplete("green tea w", 10));
+        assertEquals(List.of("Green Tea"), repo.autocomplete("gre", 1));
+
+        repo.deleteById(3L);
+        repo.save(new Product(6L, "Oolong", 3.5));
+        assertEquals(List.of("Greek yogurt", "Green tea with jasmine"), repo.autocomplete("gre", 10));
+        assertEquals(List.of("Green tea with jasmine"), repo.autocomplete("tea", 10));
+        assertEquals(List.of("Oolong"), repo.autocomplete("o", 10));
+    }
+
+    @Test
+    void autocompleteStaysConsistentUnderConcurrentWrites() throws Exception {
+        ProductRepository repo = new ProductRepository();
+        String[] words = {"green", "tea", "grape", "apple", "apricot", "black", "blue", "tango"};
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 2000; i++) {
+                        long id = 10 + random.nextInt(200);
+                        if (random.nextInt(10) == 0) {
+                            repo.deleteById(id);
+                        } else {
+                            String first = words[random.nextInt(words.length)];
+                            repo.save(new Product(id, first + " " + words[random.nextInt(words.length)], 1.0));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (Product p : repo.findAll()) {
+            counts.merge(p.getName(), 1, Integer::sum);
+        }
+        for (String prefix : List.of("", "g", "gr", "gre", "t", "ta", "a", "ap", "b", "bl", "blue t")) {
+            List<String> expected = counts.keySet().stream()
+                    .filter(name -> name.startsWith(prefix) || name.contains(" " + prefix))
+                    .sorted(Comparator.<String>comparingInt(name -> -counts.get(name))
+                            .thenComparingInt(String::length)
+                            .thenComparing(Comparator.naturalOrder()))
+                    .limit(10)
+                    .toList();
+            assertEquals(expected, repo.autocomplete(prefix, 10), prefix);
+        }
+    }
+
+    @Test
+    void writeAheadLogRestoresStoreAfterRestart(@TempDir Path dir) throws Exception {
+        StoreProperties properties = new StoreProperties();
+        properties.getWal().setEnabled(true);
+        properties.getWal().setDirectory(dir);
+
+        ProductRepository repo = new ProductRepository(properties);
+        long widgetVersion = repo.save(new Product(null, "Widget", 5.0)).getVersion();
+        long renamedVersion = repo.save(new Product(1L, "Renamed", 20.0)).getVersion();
+        repo.deleteById(2L);
+        long catalogVersion = repo.version();
+        repo.close();
+        assertTrue(renamedVersion > widgetVersion);
+
+        ProductRepository restarted = new ProductRepository(properties);
+        assertEquals(List.of(1L, 3L), restarted.findAll().stream().map(Product::getId).toList());
+        assertEquals("Renamed", restarted.findById(1L).orElseThrow().getName());
+        assertEquals(renamedVersion, restarted.findById(1L).orElseThrow().getVersion());
+        Product next = restarted.save(new Product(null, "Next", 1.0));
+        assertEquals(4L, next.getId());
+        assertTrue(next.getVersion() > catalogVersion);
+        assertTrue(restarted.version() > catalogVersion);
+        restarted.close();
+    }
+
+    @Test
+    void restartLoadsSnapshotAndReplaysOnlyTheTail(@TempDir Path dir) throws Exception {
+        StoreProperties properties = new StoreProperties();
+        properties.getWal().setEnabled(true);
+        properties.getWal().setDirectory(dir);
+
+        ProductRepository repo = new ProductRepository(properties);
+        repo.save(new Product(null, "Before", 1.0));
+        repo.snapshot();
+        repo.save(new Product(null, "After", 2.0));
+        repo.deleteById(1L);
+        repo.close();
+
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of("products-0000000000000000001.wal", "snapshot-0000000000000000001.bin"),
+                    files.map(f -> f.getFileName().toString()).sorted().toList());
+        }
+
+        ProductRepository restarted = new ProductRepository(properties);
+        assertEquals(List.of("Sample Product B", "Before", "After"),
+                restarted.findAll().stream().map(Product::getName).toList());
+        assertEquals(5L, restarted.save(new Product(null, "Next", 1.0)).getId());
+        restarted.close();
+    }
+
+    @Test
+    void findAllByIdKeepsRequestOrderAndSkipsMissing() {
+        StoreProperties offHeap = new StoreProperties();
+        offHeap.setEngine(StorageEngine.OFF_HEAP);
+        for (ProductRepository repo : List.of(new ProductRepository(), new ProductRepository(offHeap))) {
+            repo.save(new Product(null, "C", 3.0));
+            List<Long> ids = repo.findAllById(new long[] {3, 99, 1, 3}).stream().map(Product::getId).toList();
+            assertEquals(List.of(3L, 1L, 3L), ids);
+            assertTrue(repo.findAllById(new long[0]).isEmpty());
+        }
+    }
+
+    @Test
+    void saveAllReservesIdsInOneBlockAndReportsReplacedProducts() {
+        ProductRepository repo = new ProductRepository();
+        long before = repo.version();
+        List<Product> batch = List.of(new Product(null, "X", 1.0), new Product(1L, "A2", 2.0),
+                new Product(null, "Y", 3.0));
+
+        List<Product> previous = repo.saveAll(batch);
+
+        assertEquals(List.of(3L, 1L, 4L), batch.stream().map(Product::getId).toList());
+        assertNull(previous.get(0));
+        assertEquals("Sample Product A", previous.get(1).getName());
+        assertNull(previous.get(2));
+        assertTrue(batch.get(2).getVersion() > batch.get(0).getVersion());
+        assertEquals(before + 1, repo.version());
+        assertEquals(5L, repo.save(new Product(null, "Z", 4.0)).getId());
+    }
+
+    @Test
+    void changeLogReplaysWritesInOrderUntilOverwritten() throws Exception {
+        StoreProperties properties = new StoreProperties();
+        properties.getChanges().setCapacity(4);
+        ProductRepository repo = new ProductRepository(properties);
+        long head = repo.changeHead();
+        Product saved = repo.save(new Product(null, "X", 1.0));
+        repo.deleteById(1L);
+
+        List<ChangeLog.Change> changes = repo.changesAfter(head, 10);
+        assertEquals(List.of(ChangeLog.Op.SAVED, ChangeLog.Op.DELETED),
+                changes.stream().map(ChangeLog.Change::op).toList());
+        assertEquals(List.of(head + 1, head + 2), changes.stream().map(ChangeLog.Change::seq).toList());
+        assertEquals(saved.getVersion(), changes.get(0).seq());
+        assertEquals("X", changes.get(0).product().getName());
+        assertEquals(1L, changes.get(1).id());
+        assertTrue(repo.changesAfter(head + 2, 10).isEmpty());
+        assertThrows(ChangeLog.TruncatedException.class, () -> repo.changesAfter(head + 3, 10));
+
+        for (int i = 0; i < 4; i++) {
+            repo.save(new Product(null, "Y" + i, 2.0));
+        }
+        assertThrows(ChangeLog.TruncatedException.class, () -> repo.changesAfter(head, 10));
+        assertEquals(4, repo.changesAfter(head + 2, 10).size());
+    }
+
+    @Test
+    void changesSinceReturnsOnlyTheDeltaWithTombstones() {
+        StoreProperties properties = new StoreProperties();
+        properties.getChanges().setTombstones(2);
+        ProductRepository repo = new ProductRepository(properties);
+        ProductChanges full = repo.changesSince(0, 10);
+        assertEquals(2, full.getProducts().size());
+        long since = full.getVersion();
+
+        Product a = repo.save(new Product(null, "A", 1.0));
+        repo.save(new Product(1L, "Sample Product A v2", 21.0));
+        repo.deleteById(2L);
+        repo.save(new Product(a.getId(), "A v2", 1.5));
+
+        ProductChanges delta = repo.changesSince(since, 10);
+        assertEquals(List.of(1L, a.getId()), delta.getProducts().stream().map(Product::getId).toList());
+        assertEquals("A v2", delta.getProducts().get(1).getName());
+        assertEquals(List.of(2L), delta.getDeleted().stream().map(ProductChanges.Tombstone::getId).toList());
+        assertEquals(repo.changeHead(), delta.getVersion());
+        assertTrue(repo.changesSince(delta.getVersion(), 10).getProducts().isEmpty());
+
+        ProductChanges first = repo.changesSince(since, 1);
+        assertTrue(first.isHasMore());
+        assertEquals(List.of(1L), first.getProducts().stream().map(Product::getId).toList());
+        assertEquals(2, repo.changesSince(first.getVersion(), 10).getProducts().size()
+                + repo.changesSince(first.getVersion(), 10).getDeleted().size());
+
+        for (long id = 3; id <= 5; id++) {
+            repo.save(new Product(id, "D", 1.0));
+            repo.deleteById(id);
+        }
+        assertThrows(ChangeLog.TruncatedException.class, () -> repo.changesSince(since, 10));
+        assertThrows(ChangeLog.TruncatedException.class, () -> repo.changesSince(repo.changeHead() + 1, 10));
+    }
+
+    @Test
+    void storeOperationsAreRecordedForFlightRecorder(@TempDir Path dir) throws Exception {
+        ProductRepository repo = new ProductRepository();
+        Path file = dir.resolve("store.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(StoreOperationEvent.class);
+            recording.start();
+            repo.findById(1L);
+            repo.findPage(null, 10);
+            repo.deleteById(2L);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(List.of("FIND_BY_ID", "FIND_PAGE", "DELETE"),
+                events.stream().map(e -> e.getString("operation")).toList());
+        assertEquals(1L, events.get(0).getLong("productId"));
+        assertEquals(2, events.get(1).getInt("products"));
+        assertEquals(1, events.get(2).getInt("products"));
+        // the two sample products are saved through the same path
+        assertEquals(2, repo.operations(ProductRepository.Operation.SAVE));
+        assertEquals(1, repo.operations(ProductRepository.Operation.FIND_BY_ID));
+    }
+
+    @Test
+    void lazyScansAreRecordedWhenExhaustedOrClosed(@TempDir Path dir) throws Exception {
+        ProductRepository repo = new ProductRepository();
+        Path file = dir.resolve("scan.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(StoreOperationEvent.class);
+            recording.start();
+            ProductRepository.Scan all = repo.scan();
+            while (all.hasNext()) {
+                all.next();
+            }
+            try (ProductRepository.Scan first = repo.scan()) {
+                first.next();
+            }
+            // neither exhausted nor closed
+            repo.scan().next();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(List.of("FIND_ALL", "FIND_ALL"), events.stream().map(e -> e.getString("operation")).toList());
+        assertEquals(List.of(2, 1), events.stream().map(e -> e.getInt("products")).toList());
+        assertEquals(3, repo.operations(ProductRepository.Operation.FIND_ALL));
+    }
+
+    @ParameterizedTest
+    @EnumSource(InventoryMode.class)
+    void concurrentReservationsNeverOversell(InventoryMode mode) throws Exception {
+        StoreProperties properties = new StoreProperties();
+        properties.getInventory().setMode(mode);
+        properties.getInventory().setShards(4);
+        ProductRepository repo = new ProductRepository(properties);
+        repo.setStock(1L, 10_000);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<Reservation>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                List<Reservation> held = new ArrayList<>();
+                for (int i = 0; i < 2_000; i++) {
+                    repo.reserve(1L, 1).ifPresent(held::add);
+                }
+                return held;
+            }));
+        }
+        List<Reservation> held = new ArrayList<>();
+        for (Future<List<Reservation>> f : results) {
+            held.addAll(f.get());
+        }
+        pool.shutdown();
+        // a sharded take may be refused while the last units move between shards; once quiet, they are all there
+        for (Optional<Reservation> r; (r = repo.reserve(1L, 1)).isPresent(); ) {
+            held.add(r.get());
+        }
+
+        assertEquals(10_000, held.size());
+        assertEquals(0, repo.stock(1L).orElseThrow().getAvailable());
+
+        assertEquals(Reservation.Status.COMMITTED,
+                repo.commitReservation(held.get(0).getId()).orElseThrow().getStatus());
+        assertTrue(repo.releaseReservation(held.get(0).getId()).isEmpty());
+        repo.releaseReservation(held.get(1).getId());
+        Stock stock = repo.stock(1L).orElseThrow();
+        assertEquals(1, stock.getAvailable());
+        assertEquals(9_998, stock.getReserved());
+        assertEquals(1, stock.getSold());
+        assertTrue(repo.setStock(99L, 1).isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.onlinestore.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStockCounterTests {
+
+    @Test
+    void aTakeGathersTheHomeShardsRemainderAsWellAsOtherShards() throws Exception {
+        ShardedStockCounter counter = new ShardedStockCounter(8);
+        counter.set(2);
+        counter.inflate();
+        counter.add(3);
+        // more units in whatever shards other threads call home
+        for (int t = 0; t < 4; t++) {
+            Thread adder = new Thread(() -> counter.add(1));
+            adder.start();
+            adder.join();
+        }
+        assertEquals(9, counter.available());
+        assertTrue(counter.tryTake(9));
+        assertEquals(0, counter.available());
+        assertFalse(counter.tryTake(1));
+    }
+
+    @Test
+    void aRefusedTakeLeavesTheUnitsInPlace() {
+        ShardedStockCounter counter = new ShardedStockCounter(2);
+        counter.set(2);
+        counter.inflate();
+        counter.add(3);
+        assertFalse(counter.tryTake(6));
+        assertEquals(5, counter.available());
+        assertTrue(counter.tryTake(5));
+    }
+
+    @Test
+    void concurrentMultiUnitTakesNeverOversell() throws Exception {
+        ShardedStockCounter counter = new ShardedStockCounter(4);
+        counter.set(10_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int quantity = t % 3 + 1;
+                futures.add(pool.submit(() -> {
+                    long taken = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        if (counter.tryTake(quantity)) {
+                            taken += quantity;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            long taken = 0;
+            for (Future<Long> f : futures) {
+                taken += f.get();
+            }
+            long left = counter.available();
+            assertEquals(10_000, taken + left);
+            // with no one else taking, everything left can be taken at once
+            assertTrue(left == 0 || counter.tryTake((int) left));
+            assertEquals(0, counter.available());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTests {
+
+    @Test
+    void aTornLastSegmentIsTruncatedButAnEarlierOneRefusesReplay(@TempDir Path dir) throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WalDurability.WRITE, Duration.ZERO)) {
+            wal.replay(0, new Collect());
+            wal.appendPut(new Product(1L, "A", 1.0));
+            wal.await(wal.appendPut(new Product(2L, "B", 2.0)));
+            wal.rotate();
+            wal.appendPut(new Product(3L, "C", 3.0));
+            wal.await(wal.appendPut(new Product(4L, "D", 4.0)));
+        }
+
+        tear(dir.resolve("products-0000000000000000001.wal"));
+        Collect replayed = new Collect();
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WalDurability.WRITE, Duration.ZERO)) {
+            wal.replay(0, replayed);
+        }
+        assertEquals(List.of(1L, 2L, 3L), replayed.ids);
+
+        Path first = dir.resolve("products-0000000000000000000.wal");
+        tear(first);
+        WriteAheadLog damaged = new WriteAheadLog(dir, WalDurability.WRITE, Duration.ZERO);
+        IOException e = assertThrows(IOException.class, () -> damaged.replay(0, new Collect()));
+        assertTrue(e.getMessage().contains(first.toString()), e.getMessage());
+    }
+
+    // cuts the last record short, as a crash in the middle of writing it would
+    private static void tear(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+    }
+
+    private static final class Collect implements WriteAheadLog.Replay {
+        final List<Long> ids = new ArrayList<>();
+
+        @Override
+        public void put(Product p) {
+            ids.add(p.getId());
+        }
+
+        @Override
+        public void delete(long id, long version) {
+            ids.remove(id);
+        }
+    }
+}